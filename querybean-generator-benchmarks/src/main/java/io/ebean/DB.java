@@ -0,0 +1,11 @@
+package io.ebean;
+
+/**
+ * Stub of the Ebean API used to compile generated query beans.
+ */
+public class DB {
+
+  public static Database byName(String name) {
+    return null;
+  }
+}
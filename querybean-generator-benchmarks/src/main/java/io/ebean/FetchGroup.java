@@ -0,0 +1,11 @@
+package io.ebean;
+
+/**
+ * Stub of the Ebean API used to compile generated query beans.
+ */
+public class FetchGroup<T> {
+
+  public static <T> Query<T> queryFor(Class<T> cls) {
+    return null;
+  }
+}
@@ -0,0 +1,7 @@
+package io.ebean;
+
+/**
+ * Stub of the Ebean API used to compile generated query beans.
+ */
+public interface Query<T> {
+}
@@ -0,0 +1,18 @@
+package io.ebean.config;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Stub of the Ebean API used to compile the generated ModuleInfoLoader.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ModuleInfo {
+
+  String[] other() default {};
+
+  String[] entities() default {};
+}
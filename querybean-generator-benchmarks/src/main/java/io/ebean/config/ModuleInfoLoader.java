@@ -0,0 +1,13 @@
+package io.ebean.config;
+
+import java.util.List;
+
+/**
+ * Stub of the Ebean API used to compile the generated ModuleInfoLoader.
+ */
+public interface ModuleInfoLoader {
+
+  List<Class<?>> entityClasses();
+
+  List<Class<?>> entityClassesFor(String dbName);
+}
@@ -0,0 +1,87 @@
+package io.ebean.querybean.benchmark;
+
+import io.ebean.querybean.generator.ModuleInfoProcessor;
+import io.ebean.querybean.generator.Processor;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.tools.JavaFileObject;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Size of the generated sources and bytecode and the metaspace used when the compiled
+ * classes are loaded, comparing the default and compact generation modes.
+ * <p>
+ * The sizes are reported as the <code>generatedKb</code>, <code>classKb</code>,
+ * <code>classFiles</code> and <code>metaspaceKb</code> secondary results.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class FootprintBenchmark {
+
+  @Param({"1000"})
+  int entities;
+
+  @Param({"FLAT", "ASSOC"})
+  ModelShape shape;
+
+  @Param({"false", "true"})
+  boolean compact;
+
+  private List<JavaFileObject> sources;
+
+  private InProcessCompiler compiler;
+
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class FootprintCounters {
+
+    public double generatedKb;
+    public double classKb;
+    public long classFiles;
+    public double metaspaceKb;
+
+    @Setup(Level.Iteration)
+    public void clear() {
+      generatedKb = 0;
+      classKb = 0;
+      classFiles = 0;
+      metaspaceKb = 0;
+    }
+  }
+
+  @Setup(Level.Trial)
+  public void setup() {
+    sources = new SyntheticModel(entities, shape).sources();
+    compiler = new InProcessCompiler();
+  }
+
+  @Benchmark
+  public long compileAndLoad(FootprintCounters counters) {
+    InProcessCompiler.Result result = compiler.compileAndLoad(sources, Arrays.asList(new Processor(), new ModuleInfoProcessor()),
+      "-Aebean.querybean.compact=" + compact);
+    counters.generatedKb = result.getGeneratedBytes() / 1024.0;
+    counters.classKb = result.getClassBytes() / 1024.0;
+    counters.classFiles = result.getClassFiles();
+    counters.metaspaceKb = result.getMetaspaceBytes() / 1024.0;
+    return result.getLoadedClasses();
+  }
+}
@@ -0,0 +1,43 @@
+package io.ebean.querybean.benchmark;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.TypeElement;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * Processor that measures the heap retained when annotation processing is over.
+ * <p>
+ * Registered after the query bean processors such that the heap includes their state.
+ * </p>
+ */
+class HeapProbeProcessor extends AbstractProcessor {
+
+  private long retainedHeap;
+
+  @Override
+  public Set<String> getSupportedAnnotationTypes() {
+    return Collections.singleton("*");
+  }
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latest();
+  }
+
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+    if (roundEnv.processingOver()) {
+      System.gc();
+      retainedHeap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+    return false;
+  }
+
+  long getRetainedHeap() {
+    return retainedHeap;
+  }
+}
@@ -0,0 +1,231 @@
+package io.ebean.querybean.benchmark;
+
+import javax.annotation.processing.Processor;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Compiles sources in-process with javac (ToolProvider.getSystemJavaCompiler()).
+ * <p>
+ * The classpath of the benchmark JVM (with the stub JPA and Ebean types) is used
+ * as the compile classpath. Output goes to a temporary directory that is deleted
+ * after each compile.
+ * </p>
+ * <p>
+ * With {@link #compileAndLoad(List, List, String...)} all the compiled classes are then
+ * loaded (without initialisation) by a new class loader to measure the metaspace they use.
+ * </p>
+ * <p>
+ * With {@link #compileWithPlugin(List, String...)} the query beans are generated by the
+ * <code>EbeanQueryBeans</code> javac plugin rather than the annotation processors.
+ * </p>
+ */
+public class InProcessCompiler {
+
+  private final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+
+  /**
+   * Compile the sources with the given annotation processors.
+   */
+  public Result compile(List<JavaFileObject> sources, List<Processor> processors, String... options) {
+    return compile(sources, processors, false, false, options);
+  }
+
+  /**
+   * Compile the sources with the given annotation processors and load the compiled classes.
+   */
+  public Result compileAndLoad(List<JavaFileObject> sources, List<Processor> processors, String... options) {
+    return compile(sources, processors, false, true, options);
+  }
+
+  /**
+   * Compile the sources with the query bean javac plugin (and no annotation processing).
+   */
+  public Result compileWithPlugin(List<JavaFileObject> sources, String... options) {
+    return compile(sources, Collections.emptyList(), true, false, options);
+  }
+
+  private Result compile(List<JavaFileObject> sources, List<Processor> processors, boolean plugin, boolean load, String... options) {
+    Path dir = createTempDir();
+    try {
+      Path classes = Files.createDirectories(dir.resolve("classes"));
+      Path generated = Files.createDirectories(dir.resolve("generated"));
+      DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+      try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, null, StandardCharsets.UTF_8)) {
+        fileManager.setLocation(StandardLocation.CLASS_OUTPUT, Collections.singletonList(classes.toFile()));
+        fileManager.setLocation(StandardLocation.SOURCE_OUTPUT, Collections.singletonList(generated.toFile()));
+        fileManager.setLocation(StandardLocation.CLASS_PATH, classPath());
+
+        List<String> allOptions = new ArrayList<>();
+        if (plugin) {
+          allOptions.add("-proc:none");
+          allOptions.add("-Xplugin:EbeanQueryBeans sourceOutput=" + generated + " classOutput=" + classes
+            + " classpath=" + System.getProperty("java.class.path") + " release=" + System.getProperty("java.specification.version"));
+        }
+        Collections.addAll(allOptions, options);
+        JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostics, allOptions, null, sources);
+        task.setProcessors(processors);
+        if (!task.call()) {
+          throw new IllegalStateException("Compile failed " + errors(diagnostics));
+        }
+      }
+      Result result = new Result(generated, classes);
+      if (load) {
+        result.load(classes);
+      }
+      return result;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } finally {
+      delete(dir);
+    }
+  }
+
+  private static long metaspaceUsed() {
+    long used = 0;
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.NON_HEAP && pool.getName().contains("Metaspace")) {
+        used += pool.getUsage().getUsed();
+      }
+    }
+    return used;
+  }
+
+  private static List<File> classPath() {
+    List<File> files = new ArrayList<>();
+    for (String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+      files.add(new File(entry));
+    }
+    return files;
+  }
+
+  private static String errors(DiagnosticCollector<JavaFileObject> diagnostics) {
+    StringBuilder sb = new StringBuilder();
+    int count = 0;
+    for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+      if (diagnostic.getKind() == Diagnostic.Kind.ERROR && count++ < 10) {
+        sb.append('\n').append(diagnostic);
+      }
+    }
+    return sb.toString();
+  }
+
+  private static Path createTempDir() {
+    try {
+      return Files.createTempDirectory("querybean-bench");
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static void delete(Path dir) {
+    try (Stream<Path> paths = Files.walk(dir)) {
+      paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * The counts and sizes of the generated sources and compiled classes.
+   */
+  public static class Result {
+
+    private long generatedFiles;
+    private long generatedBytes;
+    private long classFiles;
+    private long classBytes;
+    private long loadedClasses;
+    private long metaspaceBytes;
+
+    Result(Path generated, Path classes) throws IOException {
+      try (Stream<Path> paths = Files.walk(generated)) {
+        for (Path path : (Iterable<Path>) paths.filter(Files::isRegularFile)::iterator) {
+          generatedFiles++;
+          generatedBytes += Files.size(path);
+        }
+      }
+      try (Stream<Path> paths = Files.walk(classes)) {
+        for (Path path : (Iterable<Path>) paths.filter(p -> p.toString().endsWith(".class"))::iterator) {
+          classFiles++;
+          classBytes += Files.size(path);
+        }
+      }
+    }
+
+    /**
+     * Load all the compiled classes with a new class loader measuring the metaspace used.
+     */
+    private void load(Path classes) throws IOException {
+      List<String> classNames = new ArrayList<>();
+      try (Stream<Path> paths = Files.walk(classes)) {
+        for (Path path : (Iterable<Path>) paths.filter(p -> p.toString().endsWith(".class"))::iterator) {
+          String relative = classes.relativize(path).toString();
+          classNames.add(relative.substring(0, relative.length() - 6).replace(File.separatorChar, '.'));
+        }
+      }
+      URL[] urls = {classes.toUri().toURL()};
+      try (URLClassLoader loader = new URLClassLoader(urls, InProcessCompiler.class.getClassLoader())) {
+        long before = metaspaceUsed();
+        for (String className : classNames) {
+          Class.forName(className, false, loader);
+          loadedClasses++;
+        }
+        metaspaceBytes = metaspaceUsed() - before;
+      } catch (ClassNotFoundException e) {
+        throw new IllegalStateException("Error loading compiled class", e);
+      }
+    }
+
+    public long getGeneratedFiles() {
+      return generatedFiles;
+    }
+
+    public long getGeneratedBytes() {
+      return generatedBytes;
+    }
+
+    public long getClassFiles() {
+      return classFiles;
+    }
+
+    public long getClassBytes() {
+      return classBytes;
+    }
+
+    /**
+     * Return the number of classes loaded by {@link #compileAndLoad(List, List, String...)}.
+     */
+    public long getLoadedClasses() {
+      return loadedClasses;
+    }
+
+    /**
+     * Return the metaspace used by the classes loaded by {@link #compileAndLoad(List, List, String...)}.
+     */
+    public long getMetaspaceBytes() {
+      return metaspaceBytes;
+    }
+  }
+}
@@ -0,0 +1,39 @@
+package io.ebean.querybean.benchmark;
+
+/**
+ * Shapes of the synthetic entity models.
+ */
+public enum ModelShape {
+
+  /**
+   * One mapped super class, 10 fields and 2 associations per entity.
+   */
+  FLAT(1, 10, 1, 1),
+
+  /**
+   * A chain of 8 mapped super classes.
+   */
+  DEEP(8, 10, 1, 1),
+
+  /**
+   * 200 fields per entity.
+   */
+  WIDE(1, 200, 1, 1),
+
+  /**
+   * 10 ManyToOne and 5 OneToMany associations per entity.
+   */
+  ASSOC(1, 10, 10, 5);
+
+  final int superDepth;
+  final int fields;
+  final int manyToOne;
+  final int oneToMany;
+
+  ModelShape(int superDepth, int fields, int manyToOne, int oneToMany) {
+    this.superDepth = superDepth;
+    this.fields = fields;
+    this.manyToOne = manyToOne;
+    this.oneToMany = oneToMany;
+  }
+}
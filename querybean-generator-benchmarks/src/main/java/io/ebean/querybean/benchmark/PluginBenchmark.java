@@ -0,0 +1,63 @@
+package io.ebean.querybean.benchmark;
+
+import io.ebean.querybean.generator.ModuleInfoProcessor;
+import io.ebean.querybean.generator.Processor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.tools.JavaFileObject;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compile time generating the query beans with the annotation processors versus the javac plugin.
+ * <p>
+ * Both compile the entities and the generated query beans, the plugin without the extra
+ * annotation processing round over the generated sources.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class PluginBenchmark {
+
+  @Param({"1000", "10000"})
+  int entities;
+
+  @Param({"FLAT", "ASSOC"})
+  ModelShape shape;
+
+  private List<JavaFileObject> sources;
+
+  private InProcessCompiler compiler;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    sources = new SyntheticModel(entities, shape).sources();
+    compiler = new InProcessCompiler();
+  }
+
+  @Benchmark
+  public long compileWithProcessor() {
+    return compiler.compile(sources, Arrays.asList(new Processor(), new ModuleInfoProcessor())).getClassFiles();
+  }
+
+  @Benchmark
+  public long compileWithPlugin() {
+    return compiler.compileWithPlugin(sources).getClassFiles();
+  }
+}
@@ -0,0 +1,64 @@
+package io.ebean.querybean.benchmark;
+
+import io.ebean.querybean.generator.ModuleInfoProcessor;
+import io.ebean.querybean.generator.Processor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.tools.JavaFileObject;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of compiling synthetic entity models with the query bean processors.
+ * <p>
+ * Compare with {@link #compileWithoutProcessor()} to isolate the cost of the processors.
+ * Run with <code>-prof gc</code> to report the allocation rate.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MINUTES)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class ProcessorBenchmark {
+
+  @Param({"100", "1000", "10000"})
+  int entities;
+
+  @Param({"FLAT", "DEEP", "WIDE", "ASSOC"})
+  ModelShape shape;
+
+  private List<JavaFileObject> sources;
+
+  private InProcessCompiler compiler;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    sources = new SyntheticModel(entities, shape).sources();
+    compiler = new InProcessCompiler();
+  }
+
+  @Benchmark
+  public long compileWithProcessor() {
+    return compiler.compile(sources, Arrays.asList(new Processor(), new ModuleInfoProcessor())).getGeneratedFiles();
+  }
+
+  @Benchmark
+  public long compileWithoutProcessor() {
+    return compiler.compile(sources, Collections.emptyList(), "-proc:none").getClassFiles();
+  }
+}
@@ -0,0 +1,74 @@
+package io.ebean.querybean.benchmark;
+
+import io.ebean.querybean.generator.ModuleInfoProcessor;
+import io.ebean.querybean.generator.Processor;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.tools.JavaFileObject;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Heap retained by javac and the query bean processors when annotation processing is over.
+ * <p>
+ * Each iteration is a single compile and the retained heap (after a GC) is reported
+ * as the <code>retainedHeapMb</code> secondary result.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class RetainedHeapBenchmark {
+
+  @Param({"100", "1000", "10000"})
+  int entities;
+
+  @Param({"FLAT", "DEEP", "WIDE", "ASSOC"})
+  ModelShape shape;
+
+  private List<JavaFileObject> sources;
+
+  private InProcessCompiler compiler;
+
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class HeapCounters {
+
+    public double retainedHeapMb;
+
+    @Setup(Level.Iteration)
+    public void clear() {
+      retainedHeapMb = 0;
+    }
+  }
+
+  @Setup(Level.Trial)
+  public void setup() {
+    sources = new SyntheticModel(entities, shape).sources();
+    compiler = new InProcessCompiler();
+  }
+
+  @Benchmark
+  public long compile(HeapCounters counters) {
+    HeapProbeProcessor probe = new HeapProbeProcessor();
+    long files = compiler.compile(sources, Arrays.asList(new Processor(), new ModuleInfoProcessor(), probe)).getGeneratedFiles();
+    counters.retainedHeapMb = probe.getRetainedHeap() / (1024.0 * 1024.0);
+    return files;
+  }
+}
@@ -0,0 +1,111 @@
+package io.ebean.querybean.benchmark;
+
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Generates the sources of a synthetic entity model.
+ * <p>
+ * Entities are spread over packages of 100 entities and all extend the same
+ * chain of mapped super classes.
+ * </p>
+ */
+public class SyntheticModel {
+
+  private static final String PACKAGE = "bench.model";
+
+  private static final String[] SCALAR_TYPES = {
+    "String", "Integer", "Long", "Boolean", "java.math.BigDecimal",
+    "java.time.LocalDate", "java.time.Instant", "java.util.UUID", "Status"
+  };
+
+  private final int entities;
+
+  private final ModelShape shape;
+
+  public SyntheticModel(int entities, ModelShape shape) {
+    this.entities = entities;
+    this.shape = shape;
+  }
+
+  /**
+   * Return the sources of the model.
+   */
+  public List<JavaFileObject> sources() {
+    List<JavaFileObject> sources = new ArrayList<>(entities + shape.superDepth + 1);
+    sources.add(source(PACKAGE, "Status", "public enum Status { NEW, ACTIVE, INACTIVE }\n"));
+    for (int i = 0; i < shape.superDepth; i++) {
+      sources.add(mappedSuper(i));
+    }
+    for (int i = 0; i < entities; i++) {
+      sources.add(entity(i));
+    }
+    return sources;
+  }
+
+  private JavaFileObject mappedSuper(int level) {
+    StringBuilder sb = new StringBuilder(512);
+    sb.append("@javax.persistence.MappedSuperclass\n");
+    sb.append("public abstract class Base").append(level);
+    if (level > 0) {
+      sb.append(" extends Base").append(level - 1);
+    }
+    sb.append(" {\n");
+    if (level == 0) {
+      sb.append("  @javax.persistence.Id Long id;\n");
+      sb.append("  @javax.persistence.Version Long version;\n");
+      sb.append("  java.time.Instant whenCreated;\n");
+      sb.append("  java.time.Instant whenModified;\n");
+      sb.append("  String tenantId;\n");
+    } else {
+      sb.append("  String level").append(level).append("Name;\n");
+      sb.append("  Integer level").append(level).append("Count;\n");
+    }
+    sb.append("}\n");
+    return source(PACKAGE, "Base" + level, sb.toString());
+  }
+
+  private JavaFileObject entity(int index) {
+    StringBuilder sb = new StringBuilder(256 + shape.fields * 40);
+    sb.append("import ").append(PACKAGE).append(".*;\n\n");
+    sb.append("@javax.persistence.Entity\n");
+    sb.append("public class E").append(index).append(" extends Base").append(shape.superDepth - 1).append(" {\n");
+    for (int i = 0; i < shape.fields; i++) {
+      sb.append("  ").append(SCALAR_TYPES[(index + i) % SCALAR_TYPES.length]).append(" f").append(i).append(";\n");
+    }
+    for (int i = 0; i < shape.manyToOne; i++) {
+      sb.append("  @javax.persistence.ManyToOne ").append(entityName(target(index, i))).append(" r").append(i).append(";\n");
+    }
+    for (int i = 0; i < shape.oneToMany; i++) {
+      sb.append("  @javax.persistence.OneToMany java.util.List<").append(entityName(target(index, i + shape.manyToOne))).append("> c").append(i).append(";\n");
+    }
+    sb.append("}\n");
+    return source(packageOf(index), "E" + index, sb.toString());
+  }
+
+  private int target(int index, int offset) {
+    return (index + offset + 1) % entities;
+  }
+
+  private String entityName(int index) {
+    return packageOf(index) + ".E" + index;
+  }
+
+  private String packageOf(int index) {
+    return PACKAGE + ".p" + (index / 100);
+  }
+
+  private static JavaFileObject source(String pkg, String name, String body) {
+    String content = "package " + pkg + ";\n\n" + body;
+    URI uri = URI.create("string:///" + pkg.replace('.', '/') + "/" + name + JavaFileObject.Kind.SOURCE.extension);
+    return new SimpleJavaFileObject(uri, JavaFileObject.Kind.SOURCE) {
+      @Override
+      public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+        return content;
+      }
+    };
+  }
+}
@@ -0,0 +1,7 @@
+package io.ebean.typequery;
+
+/**
+ * Stub of the Ebean API used to compile generated query beans.
+ */
+public class PArray<R, E> extends TQProperty<R> {
+}
@@ -0,0 +1,33 @@
+package io.ebean.typequery;
+
+/**
+ * Stub of the Ebean API used to compile generated query beans.
+ */
+public abstract class TQAssocBean<T, R> {
+
+  public TQAssocBean(String name, R root) {
+  }
+
+  public TQAssocBean(String name, R root, String prefix) {
+  }
+
+  @SafeVarargs
+  protected final R fetchProperties(TQProperty<?>... properties) {
+    return null;
+  }
+
+  @SafeVarargs
+  protected final R fetchQueryProperties(TQProperty<?>... properties) {
+    return null;
+  }
+
+  @SafeVarargs
+  protected final R fetchCacheProperties(TQProperty<?>... properties) {
+    return null;
+  }
+
+  @SafeVarargs
+  protected final R fetchLazyProperties(TQProperty<?>... properties) {
+    return null;
+  }
+}
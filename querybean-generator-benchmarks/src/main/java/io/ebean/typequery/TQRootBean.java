@@ -0,0 +1,29 @@
+package io.ebean.typequery;
+
+import io.ebean.Database;
+import io.ebean.Query;
+import io.ebean.Transaction;
+
+/**
+ * Stub of the Ebean API used to compile generated query beans.
+ */
+public abstract class TQRootBean<T, R> {
+
+  public TQRootBean(Class<T> beanType) {
+  }
+
+  public TQRootBean(Class<T> beanType, Database database) {
+  }
+
+  public TQRootBean(Class<T> beanType, Transaction transaction) {
+  }
+
+  public TQRootBean(Class<T> beanType, Database database, Transaction transaction) {
+  }
+
+  public TQRootBean(boolean aliasDummy) {
+  }
+
+  public TQRootBean(Query<T> query) {
+  }
+}
@@ -0,0 +1,13 @@
+package io.ebean.typequery;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+/**
+ * Stub of the Ebean API used to compile generated query beans.
+ */
+@Retention(RetentionPolicy.CLASS)
+public @interface TypeQueryBean {
+
+  String value();
+}
@@ -0,0 +1,76 @@
+package io.ebean.querybean.generator;
+
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Index of the annotations on elements keyed by annotation qualified name.
+ * <p>
+ * The annotation mirrors of each element are read once and subsequent lookups
+ * are O(1). The index is only valid for a single round.
+ * </p>
+ */
+class AnnotationIndex {
+
+  private final Map<Element, Map<String, AnnotationMirror>> index = new HashMap<>();
+
+  /**
+   * Return the annotation with the given qualified name or null if the element does not have it.
+   */
+  AnnotationMirror get(Element element, String annotation) {
+    if (element == null) {
+      return null;
+    }
+    return annotations(element).get(annotation);
+  }
+
+  /**
+   * Return true if the element has any of the given annotations.
+   */
+  boolean hasAny(Element element, String... annotations) {
+    if (element == null) {
+      return false;
+    }
+    final Map<String, AnnotationMirror> map = annotations(element);
+    for (String annotation : annotations) {
+      if (map.containsKey(annotation)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private Map<String, AnnotationMirror> annotations(Element element) {
+    Map<String, AnnotationMirror> map = index.get(element);
+    if (map == null) {
+      map = read(element);
+      index.put(element, map);
+    }
+    return map;
+  }
+
+  private static Map<String, AnnotationMirror> read(Element element) {
+    final List<? extends AnnotationMirror> mirrors = element.getAnnotationMirrors();
+    if (mirrors.isEmpty()) {
+      return Collections.emptyMap();
+    }
+    Map<String, AnnotationMirror> map = new HashMap<>();
+    for (AnnotationMirror mirror : mirrors) {
+      TypeElement annotationType = (TypeElement) mirror.getAnnotationType().asElement();
+      map.put(annotationType.getQualifiedName().toString(), mirror);
+    }
+    return map;
+  }
+
+  /**
+   * Clear the index (at the start of each round).
+   */
+  void clear() {
+    index.clear();
+  }
+}
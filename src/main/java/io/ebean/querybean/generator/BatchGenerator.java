@@ -0,0 +1,332 @@
+package io.ebean.querybean.generator;
+
+import javax.tools.JavaCompiler;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Stream;
+
+/**
+ * Generates the query beans and module info of compiled entity classes in a single batch.
+ * <p>
+ * The classes of the given jars and directories are read via <code>javax.lang.model</code> by
+ * an in-process javac running annotation processing only (<code>-proc:only</code>) with the
+ * Processor and ModuleInfoProcessor, so nothing is compiled. This allows query beans to be
+ * generated once per release of an entity model rather than by every downstream compile.
+ * Rendering is parallel unless the <code>ebean.querybean.parallelism</code> option is given.
+ * The sources are generated for the release of the input classes unless a release is given.
+ * </p>
+ * <pre>
+ * java -cp querybean-generator.jar io.ebean.querybean.generator.BatchGenerator \
+ *   -cp ebean-api.jar:persistence-api.jar -s target/generated-sources -d target/generated-resources \
+ *   entities.jar
+ * </pre>
+ * <p>
+ * The classpath must contain the JPA and Ebean annotation types and any types the entities depend on.
+ * </p>
+ */
+public class BatchGenerator {
+
+  private final List<Path> inputs = new ArrayList<>();
+
+  private final List<Path> classPath = new ArrayList<>();
+
+  private final Map<String, String> options = new LinkedHashMap<>();
+
+  private Path sourceOutput = Paths.get("generated-sources");
+
+  private Path classOutput = Paths.get("generated-resources");
+
+  private int release;
+
+  /**
+   * Add a jar or directory of compiled entity classes to generate query beans for.
+   */
+  public BatchGenerator input(Path input) {
+    inputs.add(input);
+    return this;
+  }
+
+  /**
+   * Add a jar or directory to the classpath (entity dependencies, JPA and Ebean annotations).
+   */
+  public BatchGenerator classPath(Path entry) {
+    classPath.add(entry);
+    return this;
+  }
+
+  /**
+   * Set the output directory of the generated query beans and ModuleInfoLoader.
+   */
+  public BatchGenerator sourceOutput(Path sourceOutput) {
+    this.sourceOutput = sourceOutput;
+    return this;
+  }
+
+  /**
+   * Set the output directory of the generated META-INF resources.
+   */
+  public BatchGenerator classOutput(Path classOutput) {
+    this.classOutput = classOutput;
+    return this;
+  }
+
+  /**
+   * Set the Java release of the generated sources (for example whether <code>@Generated</code>
+   * is <code>javax.annotation.Generated</code> or <code>javax.annotation.processing.Generated</code>).
+   * Defaults to the release of the newest input class file.
+   */
+  public BatchGenerator release(int release) {
+    this.release = release;
+    return this;
+  }
+
+  /**
+   * Set a processor option (for example <code>ebean.querybean.compact</code>).
+   */
+  public BatchGenerator option(String key, String value) {
+    options.put(key, value);
+    return this;
+  }
+
+  /**
+   * Generate the query beans returning the number of classes read.
+   *
+   * @throws IllegalStateException when javac or the processors report an error
+   */
+  public int generate() throws IOException {
+    List<String> classNames = classNames(inputs);
+    if (classNames.isEmpty()) {
+      return 0;
+    }
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    if (compiler == null) {
+      throw new IllegalStateException("No system java compiler, a JDK is required");
+    }
+    Files.createDirectories(sourceOutput);
+    Files.createDirectories(classOutput);
+    try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, StandardCharsets.UTF_8)) {
+      List<File> files = new ArrayList<>();
+      for (Path input : inputs) {
+        files.add(input.toFile());
+      }
+      for (Path entry : classPath) {
+        files.add(entry.toFile());
+      }
+      fileManager.setLocation(StandardLocation.CLASS_PATH, files);
+      fileManager.setLocation(StandardLocation.SOURCE_OUTPUT, Collections.singletonList(sourceOutput.toFile()));
+      fileManager.setLocation(StandardLocation.CLASS_OUTPUT, Collections.singletonList(classOutput.toFile()));
+
+      JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, null, javacOptions(compiler), classNames, null);
+      task.setProcessors(Arrays.asList(new Processor(), new ModuleInfoProcessor()));
+      if (!task.call()) {
+        throw new IllegalStateException("Error generating query beans, see the reported errors");
+      }
+    }
+    return classNames.size();
+  }
+
+  private List<String> javacOptions(JavaCompiler compiler) throws IOException {
+    List<String> javacOptions = new ArrayList<>();
+    javacOptions.add("-proc:only");
+    int sourceRelease = release > 0 ? release : Math.max(8, release(inputs));
+    // JDK 8 javac has no --release option
+    javacOptions.add(compiler.isSupportedOption("--release") > -1 ? "--release" : "-source");
+    javacOptions.add(String.valueOf(sourceRelease));
+    if (!options.containsKey(Constants.OPTION_PARALLELISM)) {
+      javacOptions.add("-A" + Constants.OPTION_PARALLELISM + "=0");
+    }
+    for (Map.Entry<String, String> entry : options.entrySet()) {
+      javacOptions.add("-A" + entry.getKey() + "=" + entry.getValue());
+    }
+    return javacOptions;
+  }
+
+  /**
+   * Return the names of the top level classes of the jars and directories (excluding
+   * nested classes, module-info, package-info and the versioned classes of a multi-release jar).
+   */
+  static List<String> classNames(List<Path> inputs) throws IOException {
+    TreeSet<String> classNames = new TreeSet<>();
+    for (Path input : inputs) {
+      if (Files.isDirectory(input)) {
+        try (Stream<Path> paths = Files.walk(input)) {
+          for (Path path : (Iterable<Path>) paths.filter(Files::isRegularFile)::iterator) {
+            addClassName(classNames, input.relativize(path).toString().replace(File.separatorChar, '/'));
+          }
+        }
+      } else {
+        try (JarFile jarFile = new JarFile(input.toFile())) {
+          Enumeration<JarEntry> entries = jarFile.entries();
+          while (entries.hasMoreElements()) {
+            addClassName(classNames, entries.nextElement().getName());
+          }
+        }
+      }
+    }
+    List<String> topLevel = new ArrayList<>();
+    for (String className : classNames) {
+      if (!isNested(classNames, className)) {
+        topLevel.add(className);
+      }
+    }
+    return topLevel;
+  }
+
+  /**
+   * Return true if the class is nested in another of the classes (a '$' in a class name
+   * without an outer class is part of the name).
+   */
+  private static boolean isNested(Set<String> classNames, String className) {
+    for (int pos = className.indexOf('$'); pos > 0; pos = className.indexOf('$', pos + 1)) {
+      if (classNames.contains(className.substring(0, pos))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static void addClassName(TreeSet<String> classNames, String path) {
+    if (!path.endsWith(".class") || path.startsWith("META-INF/")) {
+      return;
+    }
+    String className = path.substring(0, path.length() - 6).replace('/', '.');
+    if (!className.endsWith("module-info") && !className.endsWith("package-info")) {
+      classNames.add(className);
+    }
+  }
+
+  /**
+   * Return the Java release of the newest class file of the jars and directories
+   * (excluding module-info and the versioned classes of a multi-release jar), 0 when there are none.
+   */
+  static int release(List<Path> inputs) throws IOException {
+    int major = 0;
+    for (Path input : inputs) {
+      if (Files.isDirectory(input)) {
+        try (Stream<Path> paths = Files.walk(input)) {
+          for (Path path : (Iterable<Path>) paths.filter(Files::isRegularFile)::iterator) {
+            if (isReleaseClass(input.relativize(path).toString().replace(File.separatorChar, '/'))) {
+              try (InputStream in = Files.newInputStream(path)) {
+                major = Math.max(major, majorVersion(in));
+              }
+            }
+          }
+        }
+      } else {
+        try (JarFile jarFile = new JarFile(input.toFile())) {
+          Enumeration<JarEntry> entries = jarFile.entries();
+          while (entries.hasMoreElements()) {
+            JarEntry entry = entries.nextElement();
+            if (isReleaseClass(entry.getName())) {
+              try (InputStream in = jarFile.getInputStream(entry)) {
+                major = Math.max(major, majorVersion(in));
+              }
+            }
+          }
+        }
+      }
+    }
+    // class file major version 52 is Java 8
+    return major > 44 ? major - 44 : 0;
+  }
+
+  private static boolean isReleaseClass(String path) {
+    return path.endsWith(".class") && !path.startsWith("META-INF/") && !path.endsWith("module-info.class");
+  }
+
+  /**
+   * Return the major version of the class file header (0 when not a class file).
+   */
+  private static int majorVersion(InputStream in) throws IOException {
+    DataInputStream data = new DataInputStream(in);
+    try {
+      if (data.readInt() != 0xCAFEBABE) {
+        return 0;
+      }
+      data.readUnsignedShort();
+      return data.readUnsignedShort();
+    } catch (EOFException e) {
+      return 0;
+    }
+  }
+
+  /**
+   * Command line entry point.
+   */
+  public static void main(String[] args) {
+    BatchGenerator generator = new BatchGenerator();
+    try {
+      for (int i = 0; i < args.length; i++) {
+        String arg = args[i];
+        if ("-cp".equals(arg) || "--classpath".equals(arg)) {
+          for (String entry : args[++i].split(File.pathSeparator)) {
+            generator.classPath(Paths.get(entry));
+          }
+        } else if ("-s".equals(arg)) {
+          generator.sourceOutput(Paths.get(args[++i]));
+        } else if ("-d".equals(arg)) {
+          generator.classOutput(Paths.get(args[++i]));
+        } else if ("-release".equals(arg) || "--release".equals(arg)) {
+          generator.release(Integer.parseInt(args[++i]));
+        } else if (arg.startsWith("-A")) {
+          int pos = arg.indexOf('=');
+          generator.option(pos == -1 ? arg.substring(2) : arg.substring(2, pos), pos == -1 ? "true" : arg.substring(pos + 1));
+        } else if (arg.startsWith("-")) {
+          usage("Unknown option " + arg);
+          return;
+        } else {
+          generator.input(Paths.get(arg));
+        }
+      }
+    } catch (ArrayIndexOutOfBoundsException e) {
+      usage("Missing option value");
+      return;
+    } catch (NumberFormatException e) {
+      usage("Invalid -release, " + e.getMessage());
+      return;
+    }
+    if (generator.inputs.isEmpty()) {
+      usage("No jars or directories of entity classes given");
+      return;
+    }
+    try {
+      int count = generator.generate();
+      System.out.println("Ebean query beans generated from " + count + " classes to " + generator.sourceOutput);
+    } catch (IOException | RuntimeException e) {
+      System.err.println(e.getMessage());
+      System.exit(1);
+    }
+  }
+
+  private static void usage(String message) {
+    System.err.println(message);
+    System.err.println("Usage: BatchGenerator [options] <jar or directory of entity classes>...");
+    System.err.println("  -cp, --classpath <path>  classpath of the entity dependencies, JPA and Ebean annotations");
+    System.err.println("  -s <dir>                 output directory of the generated sources (default generated-sources)");
+    System.err.println("  -d <dir>                 output directory of the generated resources (default generated-resources)");
+    System.err.println("  -release <release>       Java release of the generated sources (default the release of the input classes)");
+    System.err.println("  -A<option>=<value>       processor option, for example -Aebean.querybean.compact=true");
+    System.exit(2);
+  }
+}
@@ -0,0 +1,96 @@
+package io.ebean.querybean.generator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Include and exclude filter of bean class names.
+ * <p>
+ * Patterns are comma separated globs or regular expressions (prefixed with <code>regex:</code>)
+ * matched against the class name or its package. In globs <code>*</code> matches within
+ * a package segment and <code>**</code> matches across segments.
+ * </p>
+ */
+class ClassNameFilter {
+
+  private static final String REGEX_PREFIX = "regex:";
+
+  private final List<Pattern> include;
+
+  private final List<Pattern> exclude;
+
+  ClassNameFilter(String include, String exclude) {
+    this.include = patterns(include);
+    this.exclude = patterns(exclude);
+  }
+
+  /**
+   * Return true if there are no include or exclude patterns.
+   */
+  boolean isEmpty() {
+    return include.isEmpty() && exclude.isEmpty();
+  }
+
+  /**
+   * Return true if the class is included and not excluded.
+   */
+  boolean test(String className) {
+    return (include.isEmpty() || matches(include, className)) && !matches(exclude, className);
+  }
+
+  /**
+   * Return true if the class matches an exclude pattern.
+   */
+  boolean isExcluded(String className) {
+    return matches(exclude, className);
+  }
+
+  private static boolean matches(List<Pattern> patterns, String className) {
+    final String packageName = Split.split(className)[0];
+    for (Pattern pattern : patterns) {
+      if (pattern.matcher(className).matches() || (packageName != null && pattern.matcher(packageName).matches())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static List<Pattern> patterns(String option) {
+    List<Pattern> patterns = new ArrayList<>();
+    if (option != null) {
+      for (String value : option.split(",")) {
+        String trimmed = value.trim();
+        if (!trimmed.isEmpty()) {
+          patterns.add(trimmed.startsWith(REGEX_PREFIX) ? Pattern.compile(trimmed.substring(REGEX_PREFIX.length())) : glob(trimmed));
+        }
+      }
+    }
+    return patterns;
+  }
+
+  /**
+   * Return the pattern for the glob.
+   */
+  static Pattern glob(String glob) {
+    StringBuilder regex = new StringBuilder(glob.length() + 16);
+    for (int i = 0; i < glob.length(); i++) {
+      char ch = glob.charAt(i);
+      if (ch == '*') {
+        if (i + 1 < glob.length() && glob.charAt(i + 1) == '*') {
+          regex.append(".*");
+          i++;
+        } else {
+          regex.append("[^.]*");
+        }
+      } else if (ch == '?') {
+        regex.append("[^.]");
+      } else if (Character.isLetterOrDigit(ch) || ch == '_' || ch == '$') {
+        regex.append(ch);
+      } else {
+        regex.append('\\').append(ch);
+      }
+    }
+    return Pattern.compile(regex.toString());
+  }
+}
@@ -0,0 +1,79 @@
+package io.ebean.querybean.generator;
+
+/**
+ * Buffer for generated source code with typed append methods and indentation.
+ * <p>
+ * Content is appended to a pre-sized StringBuilder that can be reset and reused.
+ * The finished content is then written to the JavaFileObject in one bulk write.
+ * </p>
+ */
+class CodeWriter {
+
+  private static final int DEFAULT_CAPACITY = 8192;
+
+  private static final String INDENT = "  ";
+
+  private final StringBuilder buffer;
+
+  CodeWriter() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  CodeWriter(int capacity) {
+    this.buffer = new StringBuilder(capacity);
+  }
+
+  CodeWriter append(String content) {
+    buffer.append(content);
+    return this;
+  }
+
+  CodeWriter append(char content) {
+    buffer.append(content);
+    return this;
+  }
+
+  CodeWriter append(int content) {
+    buffer.append(content);
+    return this;
+  }
+
+  /**
+   * Append the indentation for the given level (2 spaces per level).
+   */
+  CodeWriter indent(int level) {
+    for (int i = 0; i < level; i++) {
+      buffer.append(INDENT);
+    }
+    return this;
+  }
+
+  /**
+   * Append a line of content at the given indentation level.
+   */
+  CodeWriter line(int level, String content) {
+    return indent(level).append(content).eol();
+  }
+
+  CodeWriter eol() {
+    buffer.append('\n');
+    return this;
+  }
+
+  /**
+   * Clear the content such that the writer can be reused.
+   */
+  CodeWriter reset() {
+    buffer.setLength(0);
+    return this;
+  }
+
+  int length() {
+    return buffer.length();
+  }
+
+  @Override
+  public String toString() {
+    return buffer.toString();
+  }
+}
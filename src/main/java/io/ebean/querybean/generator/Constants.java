@@ -34,5 +34,83 @@ interface Constants {
   String MODULEINFO = "io.ebean.config.ModuleInfo";
   String METAINF_MANIFEST = "META-INF/ebean-generated-info.mf";
   String METAINF_SERVICES_MODULELOADER = "META-INF/services/io.ebean.config.ModuleInfoLoader";
+  String METAINF_ENTITY_INDEX = "META-INF/ebean/entities.idx";
+  String SOURCE_FINGERPRINTS = "querybean-fingerprints.txt";
+  String SOURCE_STATE = "querybean-state.txt";
+
+  /**
+   * Processor option for the number of threads used to render query beans (0 for all processors).
+   */
+  String OPTION_PARALLELISM = "ebean.querybean.parallelism";
+
+  /**
+   * Processor option to skip writing generated sources and resources that are unchanged.
+   */
+  String OPTION_SKIP_UNCHANGED = "ebean.querybean.skipUnchanged";
+
+  /**
+   * Processor option to report timings and counts of the processing phases.
+   */
+  String OPTION_STATS = "ebean.querybean.stats";
+  String SOURCE_STATS = "querybean-stats.json";
+  String SOURCE_MODULEINFO_STATS = "querybean-moduleinfo-stats.json";
+
+  /**
+   * Processor option for the maximum entities per ModuleInfoLoader shard (0 to not shard).
+   */
+  String OPTION_SHARD_SIZE = "ebean.querybean.shardSize";
+
+  /**
+   * Processor option to also generate the entity and other class names in the ModuleInfoLoader.
+   */
+  String OPTION_NAMES = "ebean.querybean.names";
+
+  /**
+   * Processor options to include and exclude the beans query beans are generated for (globs or regex).
+   */
+  String OPTION_INCLUDE = "ebean.querybean.include";
+  String OPTION_EXCLUDE = "ebean.querybean.exclude";
+
+  /**
+   * Processor option to only generate assoc beans for the beans that are association targets.
+   */
+  String OPTION_PRUNE_ASSOC = "ebean.querybean.pruneAssoc";
+
+  /**
+   * Processor option of the beans to always generate assoc beans for when pruning (globs or regex).
+   */
+  String OPTION_KEEP_ASSOC = "ebean.querybean.keepAssoc";
+
+  /**
+   * Processor option to generate compact query beans (no Javadoc and no Alias class).
+   */
+  String OPTION_COMPACT = "ebean.querybean.compact";
+
+  /**
+   * Processor option to generate the static Alias class of root query beans (defaults to not compact).
+   */
+  String OPTION_ALIAS = "ebean.querybean.alias";
+
+  /**
+   * Processor option to skip rendering the query beans of beans with an unchanged fingerprint.
+   */
+  String OPTION_FINGERPRINTS = "ebean.querybean.fingerprints";
+
+  /**
+   * Processor option of the directory of a content addressed cache of rendered query beans.
+   */
+  String OPTION_CACHE_DIR = "ebean.querybean.cacheDir";
+
+  /**
+   * Processor option of the maximum size in MB of the cache directory.
+   */
+  String OPTION_CACHE_MAX_SIZE = "ebean.querybean.cacheMaxSize";
+  int DEFAULT_CACHE_MAX_SIZE = 256;
+
+  /**
+   * Supported options of a dynamic processor telling Gradle its incremental kind.
+   */
+  String GRADLE_ISOLATING = "org.gradle.annotation.processing.isolating";
+  String GRADLE_AGGREGATING = "org.gradle.annotation.processing.aggregating";
 
 }
\ No newline at end of file
@@ -0,0 +1,45 @@
+package io.ebean.querybean.generator;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Helper to compute the hash of generated content.
+ */
+class ContentHash {
+
+  /**
+   * Return the SHA-256 hash of the content as a hex string.
+   */
+  static String sha256(CharSequence content) {
+    return toHex(newDigest().digest(content.toString().getBytes(StandardCharsets.UTF_8)));
+  }
+
+  /**
+   * Return a new SHA-256 digest (to hash content in parts).
+   */
+  static MessageDigest newDigest() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Complete the digest and return the hash as a hex string.
+   */
+  static String hex(MessageDigest digest) {
+    return toHex(digest.digest());
+  }
+
+  private static String toHex(byte[] bytes) {
+    StringBuilder sb = new StringBuilder(bytes.length * 2);
+    for (byte b : bytes) {
+      sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+      sb.append(Character.forDigit(b & 0xF, 16));
+    }
+    return sb.toString();
+  }
+}
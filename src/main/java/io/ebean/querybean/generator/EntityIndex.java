@@ -0,0 +1,88 @@
+package io.ebean.querybean.generator;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Renders the entity index of the module for runtime bootstrap and tooling.
+ * <p>
+ * The index is a line oriented resource in CLASS_OUTPUT with a versioned header and a line
+ * per class with its kind, class name and dbName (or <code>-</code>). The kinds are
+ * <code>E</code> entity, <code>B</code> embeddable, <code>C</code> converter and
+ * <code>P</code> component. For example:
+ * </p>
+ * <pre>
+ * ebean-entities 1
+ * B org.example.domain.Address -
+ * E org.example.domain.Customer -
+ * E org.example.domain.Report reporting
+ * C org.example.domain.MoneyConverter -
+ * </pre>
+ * <p>
+ * It can be read with a single sequential read without loading the ModuleInfoLoader
+ * or any of the listed classes.
+ * </p>
+ */
+class EntityIndex {
+
+  private static final String HEADER = "ebean-entities";
+
+  private static final int VERSION = 1;
+
+  private static final String NO_DB = "-";
+
+  /**
+   * The kind of an indexed class.
+   */
+  enum Kind {
+    ENTITY('E'),
+    EMBEDDABLE('B'),
+    CONVERTER('C'),
+    COMPONENT('P');
+
+    private final char code;
+
+    Kind(char code) {
+      this.code = code;
+    }
+
+    char code() {
+      return code;
+    }
+
+    /**
+     * Return the kind of the code or null when not a known code.
+     */
+    static Kind of(String code) {
+      for (Kind kind : values()) {
+        if (code.length() == 1 && code.charAt(0) == kind.code) {
+          return kind;
+        }
+      }
+      return null;
+    }
+  }
+
+  /**
+   * Render the index of the module.
+   */
+  static String render(ModuleEntities module) {
+    StringBuilder sb = new StringBuilder(HEADER).append(' ').append(VERSION).append('\n');
+    for (String entity : module.getDbEntities()) {
+      line(sb, module.getKind(entity, Kind.ENTITY), entity, NO_DB);
+    }
+    for (Map.Entry<String, Set<String>> otherDb : module.getOtherDbEntities().entrySet()) {
+      for (String entity : otherDb.getValue()) {
+        line(sb, module.getKind(entity, Kind.ENTITY), entity, otherDb.getKey());
+      }
+    }
+    for (String other : module.getOtherClasses()) {
+      line(sb, module.getKind(other, Kind.COMPONENT), other, NO_DB);
+    }
+    return sb.toString();
+  }
+
+  private static void line(StringBuilder sb, Kind kind, String className, String dbName) {
+    sb.append(kind.code).append(' ').append(className).append(' ').append(dbName).append('\n');
+  }
+}
@@ -7,18 +7,44 @@ import javax.lang.model.element.TypeElement;
 import javax.lang.model.type.TypeKind;
 import javax.lang.model.type.TypeMirror;
 import javax.lang.model.util.Types;
-import java.util.List;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 
+/**
+ * Find the DbName of types memoizing the result for each type in the inheritance chain.
+ */
 class FindDbName {
 
+  private final AnnotationIndex annotationIndex;
+
+  private final Types typeUtils;
+
+  /**
+   * DbName by type name (with null values for types without a DbName).
+   */
+  private final Map<String, String> dbNames = new HashMap<>();
+
+  FindDbName(AnnotationIndex annotationIndex, Types typeUtils) {
+    this.annotationIndex = annotationIndex;
+    this.typeUtils = typeUtils;
+  }
+
   /**
    * Return the value of the DbName annotation or null if it isn't found on the element.
    */
-  static String value(TypeElement element, Types typeUtils) {
+  String value(TypeElement element) {
+    final String key = element.getQualifiedName().toString();
+    if (dbNames.containsKey(key)) {
+      return dbNames.get(key);
+    }
+    final String dbName = find(element);
+    dbNames.put(key, dbName);
+    return dbName;
+  }
 
-    AnnotationMirror mirror = findDbNameMirror(element);
+  private String find(TypeElement element) {
+    AnnotationMirror mirror = annotationIndex.get(element, Constants.DBNAME);
     if (mirror != null) {
       return readDbNameValue(mirror);
     }
@@ -27,7 +53,7 @@ class FindDbName {
       return null;
     }
     final TypeElement element1 = (TypeElement)typeUtils.asElement(typeMirror);
-    return value(element1, typeUtils);
+    return value(element1);
   }
 
   private static String readDbNameValue(AnnotationMirror mirror) {
@@ -42,14 +68,10 @@ class FindDbName {
     return null;
   }
 
-  private static AnnotationMirror findDbNameMirror(TypeElement element) {
-    final List<? extends AnnotationMirror> mirrors = element.getAnnotationMirrors();
-    for (AnnotationMirror mirror : mirrors) {
-      final String name = mirror.getAnnotationType().asElement().toString();
-      if (Constants.DBNAME.equals(name)) {
-        return mirror;
-      }
-    }
-    return null;
+  /**
+   * Clear the memoized values (at the start of each round).
+   */
+  void clear() {
+    dbNames.clear();
   }
 }
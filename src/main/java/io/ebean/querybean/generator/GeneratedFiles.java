@@ -0,0 +1,297 @@
+package io.ebean.querybean.generator;
+
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.FilerException;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+import javax.tools.FileObject;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+import java.io.BufferedReader;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.NoSuchFileException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reads and writes the generated sources, META-INF resources and sidecar files via the Filer.
+ * <p>
+ * When skip unchanged is enabled output with the same content as the existing output is
+ * not written (such that it does not trigger downstream recompiles).
+ * </p>
+ */
+class GeneratedFiles implements Constants {
+
+  private final ProcessingContext ctx;
+
+  private final Filer filer;
+
+  private final ProcessingStats stats;
+
+  /**
+   * When true skip writing generated output that is unchanged.
+   */
+  private final boolean skipUnchanged;
+
+  private int skippedCount;
+
+  /**
+   * The query beans generated by this processor.
+   */
+  private final Set<String> generatedTypes = new HashSet<>();
+
+  GeneratedFiles(ProcessingContext ctx, Filer filer, ProcessingStats stats, boolean skipUnchanged) {
+    this.ctx = ctx;
+    this.filer = filer;
+    this.stats = stats;
+    this.skipUnchanged = skipUnchanged;
+  }
+
+  /**
+   * Write the source for the given class name.
+   * <p>
+   * The write is only skipped when the existing source is unchanged and its class has been
+   * compiled, as javac only compiles sources created via the Filer.
+   * </p>
+   *
+   * @return false if the write was skipped as the existing source is unchanged
+   */
+  boolean writeSource(String className, String content, Element... originatingElements) throws IOException {
+    String[] split = Split.split(className);
+    if (skipUnchanged && compiled(className) && unchanged(StandardLocation.SOURCE_OUTPUT, split[0], split[1] + ".java", content)) {
+      generatedTypes.add(className);
+      skippedCount++;
+      return false;
+    }
+    return createSource(className, content, originatingElements);
+  }
+
+  /**
+   * Write the source for the given class name (never skipped).
+   */
+  boolean createSource(String className, String content, Element... originatingElements) throws IOException {
+    generatedTypes.add(className);
+    long start = stats.start();
+    JavaFileObject jfo = filer.createSourceFile(className, originatingElements);
+    try (Writer writer = jfo.openWriter()) {
+      writer.write(content);
+    }
+    stats.end(ProcessingStats.Phase.FILER, start);
+    stats.file(content);
+    return true;
+  }
+
+  /**
+   * Write the META-INF resource.
+   *
+   * @return false if the write was skipped as the existing resource is unchanged
+   */
+  boolean writeMetaInf(String target, String content, Element... originatingElements) throws IOException {
+    return writeResource(StandardLocation.CLASS_OUTPUT, target, content, originatingElements);
+  }
+
+  /**
+   * Write the build only sidecar file to the source output (such that it is not packaged).
+   *
+   * @return false if the write was skipped as the existing file is unchanged
+   */
+  boolean writeSidecar(String target, String content, Element... originatingElements) throws IOException {
+    return writeResource(StandardLocation.SOURCE_OUTPUT, target, content, originatingElements);
+  }
+
+  private boolean writeResource(StandardLocation location, String target, String content, Element... originatingElements) throws IOException {
+    if (skipUnchanged && unchanged(location, "", target, content)) {
+      skippedCount++;
+      return false;
+    }
+    long start = stats.start();
+    FileObject fileObject = filer.createResource(location, "", target, originatingElements);
+    try (Writer writer = fileObject.openWriter()) {
+      writer.write(content);
+    }
+    stats.end(ProcessingStats.Phase.FILER, start);
+    stats.file(content);
+    return true;
+  }
+
+  /**
+   * Return true if the existing output has the same content hash as the given content.
+   */
+  private boolean unchanged(StandardLocation location, String pkg, String relativeName, String content) {
+    long start = stats.start();
+    try {
+      FileObject existing = filer.getResource(location, pkg == null ? "" : pkg, relativeName);
+      CharSequence existingContent = existing.getCharContent(true);
+      return existingContent != null && ContentHash.sha256(existingContent).equals(ContentHash.sha256(content));
+    } catch (IOException | IllegalArgumentException | IllegalStateException e) {
+      // no existing output or not readable
+      return false;
+    } finally {
+      stats.end(ProcessingStats.Phase.FILER, start);
+    }
+  }
+
+  /**
+   * Return true if the class of the generated source exists in the class output and is
+   * not older than the source.
+   */
+  boolean compiled(String className) {
+    String[] split = Split.split(className);
+    long classModified = lastModified(StandardLocation.CLASS_OUTPUT, split[0], split[1] + ".class");
+    long sourceModified = lastModified(StandardLocation.SOURCE_OUTPUT, split[0], split[1] + ".java");
+    return classModified > 0 && sourceModified > 0 && classModified >= sourceModified;
+  }
+
+  /**
+   * Return true if the top level class exists in the class output.
+   */
+  boolean classExists(String className) {
+    String[] split = Split.split(className);
+    return lastModified(StandardLocation.CLASS_OUTPUT, split[0], split[1] + ".class") > 0;
+  }
+
+  /**
+   * Return the last modified time of the file (0 when it does not exist).
+   */
+  private long lastModified(StandardLocation location, String pkg, String relativeName) {
+    long start = stats.start();
+    try {
+      return filer.getResource(location, pkg == null ? "" : pkg, relativeName).getLastModified();
+    } catch (IOException | IllegalArgumentException | IllegalStateException e) {
+      return 0;
+    } finally {
+      stats.end(ProcessingStats.Phase.FILER, start);
+    }
+  }
+
+  /**
+   * Skip the generated source as it is unchanged (the existing source is compiled).
+   */
+  void skipSource(String className) {
+    generatedTypes.add(className);
+    skippedCount++;
+  }
+
+  /**
+   * Return the number of writes skipped as the output was unchanged.
+   */
+  int getSkippedCount() {
+    return skippedCount;
+  }
+
+  /**
+   * Return true if all the root elements of the round are query beans generated by this processor.
+   */
+  boolean isGeneratedOnly(Set<? extends Element> rootElements) {
+    for (Element element : rootElements) {
+      if (!(element instanceof TypeElement) || !generatedTypes.contains(((TypeElement) element).getQualifiedName().toString())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Log the stats summary and write the JSON report to the source output (when the stats option is enabled).
+   */
+  void writeStats(String processor, String target) {
+    if (!stats.isEnabled()) {
+      return;
+    }
+    stats.over();
+    ctx.logNote("%s", stats.summary(processor));
+    try {
+      FileObject fileObject = filer.createResource(StandardLocation.SOURCE_OUTPUT, "", target);
+      try (Writer writer = fileObject.openWriter()) {
+        writer.write(stats.toJson(processor, skippedCount));
+      }
+    } catch (IOException e) {
+      ctx.logNote("Failed to write stats report %s: %s", target, e.getMessage());
+    }
+  }
+
+  /**
+   * Read the fingerprints sidecar of the previous compile (empty when there is none).
+   */
+  Map<String, String> readFingerprints() {
+    try {
+      FileObject fileObject = filer.getResource(StandardLocation.SOURCE_OUTPUT, "", SOURCE_FINGERPRINTS);
+      try (Reader reader = fileObject.openReader(true)) {
+        return QueryBeanFingerprints.read(reader);
+      }
+    } catch (IOException | IllegalArgumentException | IllegalStateException e) {
+      // no sidecar yet or not readable
+      return new HashMap<>();
+    }
+  }
+
+  /**
+   * Write the fingerprints sidecar to the source output (when fingerprints have been set).
+   */
+  void writeFingerprints(QueryBeanFingerprints fingerprints) {
+    if (fingerprints == null || !fingerprints.isModified()) {
+      return;
+    }
+    try {
+      FileObject fileObject = filer.createResource(StandardLocation.SOURCE_OUTPUT, "", SOURCE_FINGERPRINTS);
+      try (Writer writer = fileObject.openWriter()) {
+        writer.write(fingerprints.render());
+      }
+    } catch (IOException e) {
+      ctx.logNote("Failed to write fingerprints %s: %s", SOURCE_FINGERPRINTS, e.getMessage());
+    }
+  }
+
+  /**
+   * Read the entities of the previous compile from the state file (null when there is none).
+   */
+  ModuleMeta readModuleState() {
+    try {
+      FileObject fileObject = filer.getResource(StandardLocation.SOURCE_OUTPUT, "", SOURCE_STATE);
+      if (fileObject != null) {
+        try (Reader reader = fileObject.openReader(true)) {
+          return ModuleState.read(reader);
+        }
+      }
+    } catch (FileNotFoundException | NoSuchFileException e) {
+      // ignore - no state file yet
+    } catch (FilerException e) {
+      ctx.logNote("FilerException reading state file: %s", e.getMessage());
+    } catch (Exception e) {
+      e.printStackTrace();
+      ctx.logError(null, "Error reading state file: " + e.getMessage());
+    }
+    return null;
+  }
+
+  /**
+   * Return the class name of the generated ModuleInfoLoader
+   * (such that we can read the current meta data for partial compile).
+   */
+  String readMetaInfServices() {
+    try {
+      FileObject fileObject = filer.getResource(StandardLocation.CLASS_OUTPUT, "", METAINF_SERVICES_MODULELOADER);
+      if (fileObject != null) {
+        try (BufferedReader reader = new BufferedReader(fileObject.openReader(true))) {
+          String line = reader.readLine();
+          if (line != null) {
+            return line.trim();
+          }
+        }
+      }
+    } catch (FileNotFoundException | NoSuchFileException e) {
+      // ignore - no services file yet
+    } catch (FilerException e) {
+      ctx.logNote("FilerException reading services file: %s", e.getMessage());
+    } catch (Exception e) {
+      e.printStackTrace();
+      ctx.logError(null, "Error reading services file: " + e.getMessage());
+    }
+    return null;
+  }
+}
@@ -0,0 +1,322 @@
+package io.ebean.querybean.generator;
+
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * The entities and other classes of the module (for the generated ModuleInfoLoader).
+ * <p>
+ * On partial compile the entities and other classes of the previous compile are read
+ * from the state file (or the ModuleInfo annotation) and added back when they still exist.
+ * Classes not compiled by this compile are checked via the class output such that they are
+ * not loaded.
+ * </p>
+ */
+class ModuleEntities {
+
+  private final ProcessingContext ctx;
+
+  private final ReadModuleInfo readModuleInfo;
+
+  /**
+   * All entity packages regardless of DB (for META-INF/ebean-generated-info.mf).
+   */
+  private final Set<String> allEntityPackages = new TreeSet<>();
+
+  private final Set<String> otherClasses = new TreeSet<>();
+
+  /**
+   * The DB name prefixed entities.
+   */
+  private final Set<String> prefixEntities = new TreeSet<>();
+
+  /**
+   * Entity classes for the default database.
+   */
+  private final Set<String> dbEntities = new TreeSet<>();
+
+  /**
+   * Entity classes for non default databases.
+   */
+  private final Map<String, Set<String>> otherDbEntities = new TreeMap<>();
+
+  /**
+   * All loaded entities regardless of db (to detect ones we add back from loadedPrefixEntities).
+   */
+  private final Set<String> loaded = new HashSet<>();
+
+  /**
+   * For partial compile the previous list of prefixed entity classes.
+   */
+  private final List<String> loadedPrefixEntities = new ArrayList<>();
+
+  /**
+   * For partial compile the previous list of other classes.
+   */
+  private final List<String> loadedOtherClasses = new ArrayList<>();
+
+  /**
+   * For partial compile the kinds of the previous entities and other classes.
+   */
+  private final Map<String, EntityIndex.Kind> loadedKinds = new HashMap<>();
+
+  /**
+   * The top level classes compiled by this compile.
+   */
+  private final Set<String> compiled = new HashSet<>();
+
+  private int prunedCount;
+
+  /**
+   * The kind of each entity and other class (for the entity index).
+   */
+  private final Map<String, EntityIndex.Kind> kinds = new HashMap<>();
+
+  /**
+   * The entity and other elements of the module (originating elements for the module info).
+   */
+  private final List<Element> moduleElements = new ArrayList<>();
+
+  /**
+   * The package for the generated ModuleInfoLoader.
+   */
+  private String factoryPackage;
+
+  ModuleEntities(ProcessingContext ctx) {
+    this.ctx = ctx;
+    this.readModuleInfo = new ReadModuleInfo(ctx);
+  }
+
+  /**
+   * Read the entities and other classes of the previous compile (for partial compile).
+   */
+  void read() {
+    ProcessingStats stats = ctx.getStats();
+    long start = stats.start();
+    ModuleMeta read = ctx.getGeneratedFiles().readModuleState();
+    if (read == null) {
+      read = readModuleInfo();
+    }
+    if (read != null) {
+      // previous prefixed entities and other classes to add back for partial compile
+      loadedPrefixEntities.addAll(read.getEntities());
+      loadedOtherClasses.addAll(read.getOther());
+      loadedKinds.putAll(read.getKinds());
+    }
+    stats.end(ProcessingStats.Phase.READ_MODULE_INFO, start);
+  }
+
+  /**
+   * Read the previous entities from the ModuleInfo annotation of the previously generated loader.
+   */
+  private ModuleMeta readModuleInfo() {
+    String factory = ctx.getGeneratedFiles().readMetaInfServices();
+    if (factory != null) {
+      TypeElement factoryType = ctx.getTypeElement(factory);
+      if (factoryType != null) {
+        return readModuleInfo.read(factoryType);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Register an entity with optional dbName.
+   */
+  void addEntity(String beanFullName, String dbName) {
+
+    loaded.add(beanFullName);
+    final String pkg = packageOf(beanFullName);
+    if (pkg != null) {
+      allEntityPackages.add(pkg);
+      updateFactoryPackage(pkg);
+    }
+    if (dbName != null) {
+      prefixEntities.add(dbName + ":" + beanFullName);
+      otherDbEntities.computeIfAbsent(dbName, s -> new TreeSet<>()).add(beanFullName);
+    } else {
+      prefixEntities.add(beanFullName);
+      dbEntities.add(beanFullName);
+    }
+  }
+
+  /**
+   * Register the classes compiled in the round.
+   */
+  void addCompiled(Set<? extends Element> rootElements) {
+    for (Element element : rootElements) {
+      if (element instanceof TypeElement) {
+        compiled.add(((TypeElement) element).getQualifiedName().toString());
+      }
+    }
+  }
+
+  void addOther(Element element) {
+    otherClasses.add(element.toString());
+  }
+
+  /**
+   * Add an entity or other element of the module (originating element for the module info).
+   */
+  void addModuleElement(Element element) {
+    moduleElements.add(element);
+  }
+
+  Element[] moduleElements() {
+    return moduleElements.toArray(new Element[0]);
+  }
+
+  /**
+   * Add back entity classes for partial compile.
+   */
+  int complete() {
+    ProcessingStats stats = ctx.getStats();
+    long start = stats.start();
+    int added = 0;
+    for (String oldPrefixEntity : loadedPrefixEntities) {
+      // maybe dbName:entityClass (the dbName can contain ':' but the class can not)
+      final int pos = oldPrefixEntity.lastIndexOf(':');
+      final String dbName = pos == -1 ? null : oldPrefixEntity.substring(0, pos);
+      final String entityClass = oldPrefixEntity.substring(pos + 1);
+      if (!loaded.contains(entityClass)) {
+        if (existing(entityClass, true)) {
+          addEntity(entityClass, dbName);
+          added++;
+        } else {
+          prunedCount++;
+        }
+      }
+    }
+    for (String otherClass : loadedOtherClasses) {
+      if (!otherClasses.contains(otherClass)) {
+        if (existing(otherClass, false)) {
+          otherClasses.add(otherClass);
+        } else {
+          prunedCount++;
+        }
+      }
+    }
+    stats.end(ProcessingStats.Phase.COMPLETE, start);
+    return added;
+  }
+
+  /**
+   * Return true if the class from the previous compile still exists (and is still an entity).
+   * <p>
+   * A class compiled by this compile that was not registered again is no longer an entity
+   * (or other class). Otherwise the class output is checked, falling back to loading the class
+   * for nested classes and when the kind is not known (state read from the ModuleInfo).
+   * </p>
+   */
+  private boolean existing(String className, boolean entity) {
+    if (isCompiled(className)) {
+      return false;
+    }
+    EntityIndex.Kind kind = loadedKinds.get(className);
+    if (kind != null && ctx.getGeneratedFiles().classExists(className)) {
+      kinds.putIfAbsent(className, kind);
+      return true;
+    }
+    TypeElement element = ctx.getTypeElement(className);
+    if (element != null && (!entity || ctx.isEntityOrEmbedded(element))) {
+      addKind(element);
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Return true if the class (or its outer class) was compiled by this compile.
+   */
+  private boolean isCompiled(String className) {
+    for (String name = className; ; name = name.substring(0, name.lastIndexOf('.'))) {
+      if (compiled.contains(name)) {
+        return true;
+      }
+      if (name.lastIndexOf('.') == -1) {
+        return false;
+      }
+    }
+  }
+
+  /**
+   * Register the kind of the entity or other class (for the entity index).
+   */
+  void addKind(TypeElement element) {
+    final EntityIndex.Kind kind;
+    if (ctx.isEntity(element)) {
+      kind = EntityIndex.Kind.ENTITY;
+    } else if (ctx.isEmbeddable(element)) {
+      kind = EntityIndex.Kind.EMBEDDABLE;
+    } else if (ctx.isConverter(element)) {
+      kind = EntityIndex.Kind.CONVERTER;
+    } else {
+      kind = EntityIndex.Kind.COMPONENT;
+    }
+    kinds.put(element.getQualifiedName().toString(), kind);
+  }
+
+  /**
+   * Return the kind of the class or the given default if not known.
+   */
+  EntityIndex.Kind getKind(String className, EntityIndex.Kind defaultKind) {
+    return kinds.getOrDefault(className, defaultKind);
+  }
+
+  /**
+   * Return the number of previous entities and other classes pruned as they no longer exist.
+   */
+  int getPrunedCount() {
+    return prunedCount;
+  }
+
+  private String packageOf(String beanFullName) {
+    final int pos = beanFullName.lastIndexOf('.');
+    if (pos > -1) {
+      return beanFullName.substring(0, pos);
+    }
+    return null;
+  }
+
+  private void updateFactoryPackage(String pkg) {
+    if (pkg != null && (factoryPackage == null || factoryPackage.length() > pkg.length())) {
+      factoryPackage = pkg;
+    }
+  }
+
+  boolean hasOtherClasses() {
+    return !otherClasses.isEmpty();
+  }
+
+  Set<String> getOtherClasses() {
+    return otherClasses;
+  }
+
+  Set<String> getPrefixEntities() {
+    return prefixEntities;
+  }
+
+  Set<String> getDbEntities() {
+    return dbEntities;
+  }
+
+  Map<String, Set<String>> getOtherDbEntities() {
+    return otherDbEntities;
+  }
+
+  Set<String> getAllEntityPackages() {
+    return allEntityPackages;
+  }
+
+  String getFactoryPackage() {
+    return factoryPackage != null ? factoryPackage : "unknown";
+  }
+}
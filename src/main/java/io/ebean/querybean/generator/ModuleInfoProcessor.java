@@ -0,0 +1,188 @@
+package io.ebean.querybean.generator;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.Elements;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * Registers the entity beans and other classes of the module and generates the ModuleInfoLoader.
+ * <p>
+ * This is an aggregating processor (for Gradle incremental compile) as the generated
+ * ModuleInfoLoader, services file and manifest include all the entities of the module.
+ * Query beans are generated by the isolating {@link Processor}.
+ * </p>
+ */
+public class ModuleInfoProcessor extends AbstractProcessor implements Constants {
+
+  /**
+   * The processing phases, previous state is loaded once and the module info is written once.
+   */
+  private enum State {
+    INIT,
+    ROUNDS,
+    COMPLETE
+  }
+
+  /**
+   * The compiles (by their element utils) this processor runs in, such that the
+   * Processor can warn when the module info is not generated.
+   */
+  private static final Set<Elements> REGISTERED = Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+
+  private ProcessingContext processingContext;
+
+  private ModuleEntities moduleEntities;
+
+  private State state = State.INIT;
+
+  private int rounds;
+
+  public ModuleInfoProcessor() {
+  }
+
+  @Override
+  public synchronized void init(ProcessingEnvironment processingEnv) {
+    super.init(processingEnv);
+    this.processingContext = new ProcessingContext(processingEnv);
+    this.moduleEntities = processingContext.getModuleEntities();
+    REGISTERED.add(processingEnv.getElementUtils());
+  }
+
+  /**
+   * Return true if this processor runs in the compile of the given element utils.
+   */
+  static boolean isRegistered(Elements elementUtils) {
+    return REGISTERED.contains(elementUtils);
+  }
+
+  @Override
+  public Set<String> getSupportedAnnotationTypes() {
+    Set<String> annotations = new LinkedHashSet<>();
+    annotations.add(ENTITY);
+    annotations.add(EMBEDDABLE);
+    annotations.add(CONVERTER);
+    annotations.add(EBEAN_COMPONENT);
+    annotations.add(MODULEINFO);
+    return annotations;
+  }
+
+  @Override
+  public Set<String> getSupportedOptions() {
+    Set<String> options = new LinkedHashSet<>();
+    options.add(OPTION_SKIP_UNCHANGED);
+    options.add(OPTION_STATS);
+    options.add(OPTION_SHARD_SIZE);
+    options.add(OPTION_NAMES);
+    return options;
+  }
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latest();
+  }
+
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+    if (state == State.INIT) {
+      loadPreviousState();
+    }
+    if (roundEnv.processingOver()) {
+      if (state == State.ROUNDS) {
+        complete();
+      }
+    } else {
+      moduleEntities.addCompiled(roundEnv.getRootElements());
+      if (!annotations.isEmpty()) {
+        processRound(roundEnv);
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Load the state of a previous compile (for partial compile). Performed once.
+   */
+  private void loadPreviousState() {
+    processingContext.getStats().begin();
+    moduleEntities.read();
+    state = State.ROUNDS;
+  }
+
+  /**
+   * Register the entities and other classes for the round.
+   */
+  private void processRound(RoundEnvironment roundEnv) {
+    ProcessingEvents.Round event = processingContext.getEvents().round();
+    processingContext.startRound();
+    processingContext.getStats().round();
+    int count = processEntities(roundEnv, processingContext.embeddableAnnotation());
+    count += processEntities(roundEnv, processingContext.entityAnnotation());
+    processOthers(roundEnv, processingContext.converterAnnotation());
+    processOthers(roundEnv, processingContext.componentAnnotation());
+    event.commit("ModuleInfoProcessor", ++rounds, count);
+  }
+
+  private int processEntities(RoundEnvironment roundEnv, TypeElement entityType) {
+    int count = 0;
+    for (Element element : roundEnv.getElementsAnnotatedWith(entityType)) {
+      TypeElement typeElement = (TypeElement) element;
+      String dbName = processingContext.findDbName(typeElement);
+      moduleEntities.addEntity(typeElement.getQualifiedName().toString(), dbName);
+      moduleEntities.addKind(typeElement);
+      moduleEntities.addModuleElement(element);
+      processingContext.getStats().entity();
+      count++;
+    }
+    return count;
+  }
+
+  private void processOthers(RoundEnvironment roundEnv, TypeElement otherType) {
+    if (otherType != null) {
+      for (Element element : roundEnv.getElementsAnnotatedWith(otherType)) {
+        moduleEntities.addOther(element);
+        moduleEntities.addKind((TypeElement) element);
+        moduleEntities.addModuleElement(element);
+      }
+    }
+  }
+
+  /**
+   * Add back entities from the previous compile and write the module info. Performed once.
+   */
+  private void complete() {
+    long start = System.nanoTime();
+    final int loaded = moduleEntities.complete();
+    writeModuleInfoBean();
+    state = State.COMPLETE;
+    if (!moduleEntities.getPrefixEntities().isEmpty()) {
+      long millis = (System.nanoTime() - start) / 1_000_000;
+      String msg = "Ebean APT loaded %s others, pruned %s deleted, module info %sms, skipped %s unchanged files - META-INF/ebean-generated-info.mf entity-packages: %s";
+      processingContext.logNote(msg, loaded, moduleEntities.getPrunedCount(), millis, processingContext.getGeneratedFiles().getSkippedCount(), moduleEntities.getAllEntityPackages());
+    }
+    processingContext.getGeneratedFiles().writeStats("ModuleInfoProcessor", SOURCE_MODULEINFO_STATS);
+  }
+
+  private void writeModuleInfoBean() {
+    ProcessingStats stats = processingContext.getStats();
+    long start = stats.start();
+    ProcessingEvents.ModuleInfo event = processingContext.getEvents().moduleInfo();
+    try {
+      SimpleModuleInfoWriter writer = new SimpleModuleInfoWriter(processingContext);
+      writer.write();
+      stats.end(ProcessingStats.Phase.MODULE_INFO_WRITE, start);
+      event.commit(moduleEntities.getPrefixEntities().size(), moduleEntities.getOtherClasses().size());
+    } catch (Throwable e) {
+      e.printStackTrace();
+      processingContext.logError(null, "Failed to write ModuleInfoLoader error:" + e + " stack:" + Arrays.toString(e.getStackTrace()));
+    }
+  }
+}
@@ -1,14 +1,22 @@
 package io.ebean.querybean.generator;
 
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 class ModuleMeta {
   private final List<String> entities;
   private final List<String> other;
+  private final Map<String, EntityIndex.Kind> kinds;
 
   ModuleMeta(List<String> entities, List<String> other) {
+    this(entities, other, Collections.emptyMap());
+  }
+
+  ModuleMeta(List<String> entities, List<String> other, Map<String, EntityIndex.Kind> kinds) {
     this.entities = entities;
     this.other = other;
+    this.kinds = kinds;
   }
 
   List<String> getEntities() {
@@ -18,4 +26,11 @@ class ModuleMeta {
   List<String> getOther() {
     return other;
   }
+
+  /**
+   * Return the kinds of the entities and other classes (empty when not known).
+   */
+  Map<String, EntityIndex.Kind> getKinds() {
+    return kinds;
+  }
 }
@@ -0,0 +1,97 @@
+package io.ebean.querybean.generator;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reads and writes the compact incremental state of the module.
+ * <p>
+ * The state is a line oriented file in SOURCE_OUTPUT (such that it is not packaged) with a
+ * versioned header and a line per entity and other class with its kind (as per the entity index),
+ * class name and for entities of a non default database the dbName. As class names have no spaces the dbName is the rest
+ * of the line (such that it can contain spaces). For example:
+ * </p>
+ * <pre>
+ * querybean-state 3
+ * B org.example.domain.Address
+ * E org.example.domain.Customer
+ * E org.example.domain.Report reporting db
+ * C org.example.domain.MoneyConverter
+ * </pre>
+ * <p>
+ * This is read on partial compile instead of reading the previous ModuleInfoLoader.
+ * </p>
+ */
+class ModuleState {
+
+  private static final String HEADER = "querybean-state";
+
+  /**
+   * Version 1 had an unused entity fingerprint column and version 2 had no kinds and
+   * could not hold a dbName with spaces, both are read via the ModuleInfo fallback.
+   */
+  private static final int VERSION = 3;
+
+  /**
+   * Render the state of the module.
+   */
+  static String render(ModuleEntities module) {
+    StringBuilder sb = new StringBuilder(HEADER).append(' ').append(VERSION).append('\n');
+    for (String entity : module.getDbEntities()) {
+      line(sb, module.getKind(entity, EntityIndex.Kind.ENTITY), entity, null);
+    }
+    for (Map.Entry<String, Set<String>> otherDb : module.getOtherDbEntities().entrySet()) {
+      for (String entity : otherDb.getValue()) {
+        line(sb, module.getKind(entity, EntityIndex.Kind.ENTITY), entity, otherDb.getKey());
+      }
+    }
+    for (String other : module.getOtherClasses()) {
+      line(sb, module.getKind(other, EntityIndex.Kind.COMPONENT), other, null);
+    }
+    return sb.toString();
+  }
+
+  private static void line(StringBuilder sb, EntityIndex.Kind kind, String className, String dbName) {
+    sb.append(kind.code()).append(' ').append(className);
+    if (dbName != null) {
+      sb.append(' ').append(dbName);
+    }
+    sb.append('\n');
+  }
+
+  /**
+   * Read the state returning null if it is not a supported version.
+   */
+  static ModuleMeta read(Reader reader) throws IOException {
+    BufferedReader lineReader = new BufferedReader(reader);
+    String header = lineReader.readLine();
+    if (header == null || !header.equals(HEADER + " " + VERSION)) {
+      return null;
+    }
+    List<String> entities = new ArrayList<>();
+    List<String> other = new ArrayList<>();
+    Map<String, EntityIndex.Kind> kinds = new HashMap<>();
+    String line;
+    while ((line = lineReader.readLine()) != null) {
+      String[] cols = line.split(" ", 3);
+      EntityIndex.Kind kind = EntityIndex.Kind.of(cols[0]);
+      if (kind == null || cols.length < 2) {
+        continue;
+      }
+      String className = cols[1];
+      kinds.put(className, kind);
+      if (kind == EntityIndex.Kind.ENTITY || kind == EntityIndex.Kind.EMBEDDABLE) {
+        entities.add(cols.length == 3 ? cols[2] + ":" + className : className);
+      } else {
+        other.add(className);
+      }
+    }
+    return new ModuleMeta(entities, other, kinds);
+  }
+}
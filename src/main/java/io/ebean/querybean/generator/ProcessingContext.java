@@ -1,7 +1,5 @@
 package io.ebean.querybean.generator;
 
-import javax.annotation.processing.Filer;
-import javax.annotation.processing.FilerException;
 import javax.annotation.processing.Messager;
 import javax.annotation.processing.ProcessingEnvironment;
 import javax.lang.model.SourceVersion;
@@ -20,85 +18,302 @@ import javax.lang.model.util.ElementFilter;
 import javax.lang.model.util.Elements;
 import javax.lang.model.util.Types;
 import javax.tools.Diagnostic;
-import javax.tools.FileObject;
-import javax.tools.JavaFileObject;
-import javax.tools.StandardLocation;
-import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.LineNumberReader;
-import java.io.Reader;
-import java.nio.file.NoSuchFileException;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.TreeMap;
-import java.util.TreeSet;
+import java.util.regex.PatternSyntaxException;
 
 /**
  * Context for the source generation.
  */
 class ProcessingContext implements Constants {
 
-  private final ProcessingEnvironment processingEnv;
   private final Types typeUtils;
-  private final Filer filer;
   private final Messager messager;
   private final Elements elementUtils;
   private final String generatedAnnotation;
 
-  private final PropertyTypeMap propertyTypeMap = new PropertyTypeMap();
+  /**
+   * Immutable mapping of scalar types shared by all compilations.
+   */
+  private static final PropertyTypeMap PROPERTY_TYPE_MAP = new PropertyTypeMap();
+
+  /**
+   * Default maximum entities per ModuleInfoLoader shard, keeps the shard static initialisers
+   * small (under the HotSpot huge method limit) and well within the constant pool limit.
+   */
+  private static final int DEFAULT_SHARD_SIZE = 500;
+
+  private final PropertyTypeCache typeCache = new PropertyTypeCache();
+
+  /**
+   * Resolved properties of mapped super classes and inheritance parents for the current round.
+   */
+  private final Map<String, List<PropertyMeta>> hierarchyProperties = new HashMap<>();
+
+  private final AnnotationIndex annotationIndex = new AnnotationIndex();
+
+  private final FindDbName findDbName;
+
+  /**
+   * The number of threads used to render query beans.
+   */
+  private final int parallelism;
+
+  /**
+   * Timings and counts reported when the stats option is enabled.
+   */
+  private final ProcessingStats stats;
+
+  /**
+   * The maximum entities per shard of the generated ModuleInfoLoader (0 for no sharding).
+   */
+  private final int shardSize;
+
+  /**
+   * When true the ModuleInfoLoader also has the entity and other class names.
+   */
+  private final boolean names;
+
+  /**
+   * Include and exclude filter of the beans that query beans are generated for.
+   */
+  private final ClassNameFilter filter;
 
-  private final ReadModuleInfo readModuleInfo;
+  /**
+   * When true only generate assoc beans for the beans that are association targets.
+   */
+  private final boolean pruneAssoc;
 
   /**
-   * All entity packages regardless of DB (for META-INF/ebean-generated-info.mf).
+   * The beans to always generate assoc beans for when pruning.
    */
-  private final Set<String> allEntityPackages = new TreeSet<>();
+  private final ClassNameFilter keepAssoc;
 
-  private final Set<String> otherClasses = new TreeSet<>();
+  /**
+   * When true generate query beans without Javadoc.
+   */
+  private final boolean compact;
+
+  /**
+   * When true generate the static Alias class of root query beans.
+   */
+  private final boolean alias;
 
   /**
-   * The DB name prefixed entities.
+   * When true skip rendering the query beans of beans with an unchanged fingerprint.
    */
-  private final Set<String> prefixEntities = new TreeSet<>();
+  private final boolean fingerprintsEnabled;
 
   /**
-   * Entity classes for the default database.
+   * Fingerprints of the query bean models (read from the sidecar on first use).
    */
-  private final Set<String> dbEntities = new TreeSet<>();
+  private QueryBeanFingerprints queryBeanFingerprints;
 
   /**
-   * Entity classes for non default databases.
+   * Reads and writes the generated files.
    */
-  private final Map<String, Set<String>> otherDbEntities = new TreeMap<>();
+  private final GeneratedFiles files;
 
   /**
-   * All loaded entities regardless of db (to detect ones we add back from loadedPrefixEntities).
+   * The entities and other classes of the module.
    */
-  private final Set<String> loaded = new HashSet<>();
+  private final ModuleEntities moduleEntities;
 
   /**
-   * For partial compile the previous list of prefixed entity classes.
+   * Cache of rendered query beans (null when not enabled).
    */
-  private List<String> loadedPrefixEntities = new ArrayList<>();
+  private final SourceCache sourceCache;
 
   /**
-   * The package for the generated ModuleInfoLoader.
+   * Flight recorder events (no-ops when JFR is not available).
    */
-  private String factoryPackage;
+  private final ProcessingEvents events = ProcessingEvents.create();
 
   ProcessingContext(ProcessingEnvironment processingEnv) {
-    this.processingEnv = processingEnv;
     this.typeUtils = processingEnv.getTypeUtils();
-    this.filer = processingEnv.getFiler();
     this.messager = processingEnv.getMessager();
     this.elementUtils = processingEnv.getElementUtils();
 
     boolean jdk8 = processingEnv.getSourceVersion().compareTo(SourceVersion.RELEASE_8) <= 0;
     this.generatedAnnotation = generatedAnnotation(jdk8);
-    this.readModuleInfo = new ReadModuleInfo(this);
+    this.findDbName = new FindDbName(annotationIndex, typeUtils);
+    this.parallelism = initParallelism(processingEnv.getOptions().get(OPTION_PARALLELISM));
+    this.stats = new ProcessingStats(Boolean.parseBoolean(processingEnv.getOptions().get(OPTION_STATS)));
+    this.shardSize = initShardSize(processingEnv.getOptions().get(OPTION_SHARD_SIZE));
+    this.names = Boolean.parseBoolean(processingEnv.getOptions().get(OPTION_NAMES));
+    this.filter = initFilter(processingEnv.getOptions().get(OPTION_INCLUDE), processingEnv.getOptions().get(OPTION_EXCLUDE));
+    this.pruneAssoc = Boolean.parseBoolean(processingEnv.getOptions().get(OPTION_PRUNE_ASSOC));
+    this.keepAssoc = initKeepAssoc(processingEnv.getOptions().get(OPTION_KEEP_ASSOC));
+    this.compact = Boolean.parseBoolean(processingEnv.getOptions().get(OPTION_COMPACT));
+    this.alias = initAlias(processingEnv.getOptions().get(OPTION_ALIAS), compact);
+    this.fingerprintsEnabled = Boolean.parseBoolean(processingEnv.getOptions().get(OPTION_FINGERPRINTS));
+    this.files = new GeneratedFiles(this, processingEnv.getFiler(), stats, Boolean.parseBoolean(processingEnv.getOptions().get(OPTION_SKIP_UNCHANGED)));
+    this.moduleEntities = new ModuleEntities(this);
+    this.sourceCache = initSourceCache(processingEnv.getOptions().get(OPTION_CACHE_DIR), processingEnv.getOptions().get(OPTION_CACHE_MAX_SIZE));
+  }
+
+  private SourceCache initSourceCache(String dir, String maxSize) {
+    if (dir == null || dir.trim().isEmpty()) {
+      return null;
+    }
+    long maxMb = DEFAULT_CACHE_MAX_SIZE;
+    if (maxSize != null) {
+      try {
+        maxMb = Math.max(0, Long.parseLong(maxSize.trim()));
+      } catch (NumberFormatException e) {
+        logNote("Ignoring invalid %s option value [%s]", OPTION_CACHE_MAX_SIZE, maxSize);
+      }
+    }
+    try {
+      return new SourceCache(Paths.get(dir.trim()), maxMb * 1024 * 1024);
+    } catch (InvalidPathException e) {
+      logNote("Ignoring invalid %s option value [%s]", OPTION_CACHE_DIR, dir);
+      return null;
+    }
+  }
+
+  private static boolean initAlias(String option, boolean compact) {
+    return option == null ? !compact : Boolean.parseBoolean(option);
+  }
+
+  private ClassNameFilter initKeepAssoc(String keep) {
+    if (keep == null || keep.trim().isEmpty()) {
+      return null;
+    }
+    try {
+      return new ClassNameFilter(keep, null);
+    } catch (PatternSyntaxException e) {
+      logError(null, "Invalid %s option pattern: %s", OPTION_KEEP_ASSOC, e.getMessage());
+      return null;
+    }
+  }
+
+  private ClassNameFilter initFilter(String include, String exclude) {
+    try {
+      return new ClassNameFilter(include, exclude);
+    } catch (PatternSyntaxException e) {
+      logError(null, "Invalid %s or %s option pattern: %s", OPTION_INCLUDE, OPTION_EXCLUDE, e.getMessage());
+      return new ClassNameFilter(null, null);
+    }
+  }
+
+  private int initShardSize(String option) {
+    if (option == null) {
+      return DEFAULT_SHARD_SIZE;
+    }
+    try {
+      return Math.max(0, Integer.parseInt(option.trim()));
+    } catch (NumberFormatException e) {
+      logNote("Ignoring invalid %s option value [%s]", OPTION_SHARD_SIZE, option);
+      return DEFAULT_SHARD_SIZE;
+    }
+  }
+
+  /**
+   * Return the maximum entities per shard of the generated ModuleInfoLoader (0 for no sharding).
+   */
+  int getShardSize() {
+    return shardSize;
+  }
+
+  /**
+   * Return the include and exclude filter of the beans that query beans are generated for.
+   */
+  ClassNameFilter getFilter() {
+    return filter;
+  }
+
+  /**
+   * Return true if assoc beans are only generated for the beans that are association targets.
+   */
+  boolean isPruneAssoc() {
+    return pruneAssoc;
+  }
+
+  /**
+   * Return true if the generated query beans depend on the other beans of the round
+   * (include, exclude or pruning) such that the processor is aggregating for Gradle.
+   */
+  boolean isAggregating() {
+    return pruneAssoc || !filter.isEmpty();
+  }
+
+  /**
+   * Return true if the assoc bean should be generated regardless of it being an association target.
+   */
+  boolean isKeepAssoc(String beanFullName) {
+    return keepAssoc != null && keepAssoc.test(beanFullName);
+  }
+
+  /**
+   * Return true if query beans are generated without Javadoc.
+   */
+  boolean isCompact() {
+    return compact;
+  }
+
+  /**
+   * Return true if root query beans have the static Alias class.
+   */
+  boolean isAlias() {
+    return alias;
+  }
+
+  /**
+   * Return true if the query beans of beans with an unchanged fingerprint are skipped.
+   */
+  boolean isFingerprints() {
+    return fingerprintsEnabled;
+  }
+
+  /**
+   * Return true if the ModuleInfoLoader should also have the class names.
+   */
+  boolean isNames() {
+    return names;
+  }
+
+  private int initParallelism(String option) {
+    if (option == null) {
+      return 1;
+    }
+    try {
+      int value = Integer.parseInt(option.trim());
+      return value > 0 ? value : Runtime.getRuntime().availableProcessors();
+    } catch (NumberFormatException e) {
+      logNote("Ignoring invalid %s option value [%s]", OPTION_PARALLELISM, option);
+      return 1;
+    }
+  }
+
+  /**
+   * Return the number of threads used to render query beans (1 for serial rendering).
+   */
+  int getParallelism() {
+    return parallelism;
+  }
+
+  ProcessingStats getStats() {
+    return stats;
+  }
+
+  GeneratedFiles getGeneratedFiles() {
+    return files;
+  }
+
+  ModuleEntities getModuleEntities() {
+    return moduleEntities;
+  }
+
+  ProcessingEvents getEvents() {
+    return events;
   }
 
   TypeElement entityAnnotation() {
@@ -129,30 +344,56 @@ class ProcessingContext implements Constants {
   }
 
   /**
-   * Gather all the fields (properties) for the given bean element.
+   * Clear the state that is only valid for a single round.
    */
-  List<VariableElement> allFields(Element element) {
-    List<VariableElement> list = new ArrayList<>();
-    gatherProperties(list, element);
-    return list;
+  void startRound() {
+    hierarchyProperties.clear();
+    annotationIndex.clear();
+    findDbName.clear();
   }
 
   /**
-   * Recursively gather all the fields (properties) for the given bean element.
+   * Return all the resolved properties for the given bean element.
+   * <p>
+   * Includes properties from mapped super classes and usual inheritance. The time
+   * resolving the property types is recorded against the given entity.
+   * </p>
    */
-  private void gatherProperties(List<VariableElement> fields, Element element) {
+  List<PropertyMeta> allProperties(TypeElement element, String entity) {
+    List<PropertyMeta> properties = new ArrayList<>(inheritedProperties(element, entity));
+    addDeclaredProperties(properties, element, entity);
+    return properties;
+  }
 
-    TypeElement typeElement = (TypeElement) element;
-    TypeMirror superclass = typeElement.getSuperclass();
-    Element mappedSuper = typeUtils.asElement(superclass);
-    if (isMappedSuperOrInheritance(mappedSuper)) {
-      gatherProperties(fields, mappedSuper);
+  /**
+   * Return the resolved properties of the mapped super class or inheritance parent.
+   * <p>
+   * These are resolved once per round and shared by all the sub classes (so the time
+   * is recorded against the first entity that needs them).
+   * </p>
+   */
+  private List<PropertyMeta> inheritedProperties(TypeElement element, String entity) {
+    Element mappedSuper = typeUtils.asElement(element.getSuperclass());
+    if (!isMappedSuperOrInheritance(mappedSuper)) {
+      return Collections.emptyList();
+    }
+    TypeElement superElement = (TypeElement) mappedSuper;
+    String key = superElement.getQualifiedName().toString();
+    List<PropertyMeta> properties = hierarchyProperties.get(key);
+    if (properties == null) {
+      properties = Collections.unmodifiableList(allProperties(superElement, entity));
+      hierarchyProperties.put(key, properties);
     }
+    return properties;
+  }
 
-    List<VariableElement> allFields = ElementFilter.fieldsIn(element.getEnclosedElements());
-    for (VariableElement field : allFields) {
+  private void addDeclaredProperties(List<PropertyMeta> properties, TypeElement element, String entity) {
+    for (VariableElement field : ElementFilter.fieldsIn(element.getEnclosedElements())) {
       if (!ignoreField(field)) {
-        fields.add(field);
+        PropertyType type = getPropertyType(field, entity);
+        if (type != null) {
+          properties.add(new PropertyMeta(field.getSimpleName().toString(), type));
+        }
       }
     }
   }
@@ -174,31 +415,24 @@ class ProcessingContext implements Constants {
     return (modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.TRANSIENT));
   }
 
-  private static boolean hasAnnotations(Element element, String... annotations) {
-    return getAnnotation(element, annotations) != null;
+  private boolean hasAnnotations(Element element, String... annotations) {
+    return annotationIndex.hasAny(element, annotations);
   }
 
-  private static AnnotationMirror getAnnotation(Element element, String... annotations) {
-    if (element == null) {
-      return null;
-    }
-    for (AnnotationMirror annotationMirror : element.getAnnotationMirrors()) {
-      final String name = annotationMirror.getAnnotationType().asElement().toString();
-      for (String annotation : annotations) {
-        if (annotation.equals(name)) {
-          return annotationMirror;
-        }
-      }
-    }
-    return null;
+  /**
+   * Return the annotation with the given qualified name or null if the element does not have it.
+   */
+  AnnotationMirror getAnnotation(Element element, String annotation) {
+    return annotationIndex.get(element, annotation);
   }
 
   private boolean isMappedSuperOrInheritance(Element mappedSuper) {
     return hasAnnotations(mappedSuper, MAPPED_SUPERCLASS, INHERITANCE);
   }
 
-  private boolean isEntityOrEmbedded(Element mappedSuper) {
-    return hasAnnotations(mappedSuper, ENTITY, EMBEDDABLE);
+
+  boolean isEntityOrEmbedded(Element element) {
+    return hasAnnotations(element, ENTITY, EMBEDDABLE);
   }
 
   boolean isEntity(Element element) {
@@ -209,24 +443,28 @@ class ProcessingContext implements Constants {
     return hasAnnotations(element, EMBEDDABLE);
   }
 
+  boolean isConverter(Element element) {
+    return hasAnnotations(element, CONVERTER);
+  }
+
   /**
    * Find the DbName annotation and return name if found.
    */
   String findDbName(TypeElement element) {
-    return FindDbName.value(element, typeUtils);
+    return findDbName.value(element);
   }
 
   /**
    * Return true if it is a DbJson field.
    */
-  private static boolean dbJsonField(Element field) {
+  private boolean dbJsonField(Element field) {
     return hasAnnotations(field, DBJSON, DBJSONB);
   }
 
   /**
    * Return true if it is a DbArray field.
    */
-  private static boolean dbArrayField(Element field) {
+  private boolean dbArrayField(Element field) {
     return hasAnnotations(field, DBARRAY);
   }
 
@@ -242,13 +480,42 @@ class ProcessingContext implements Constants {
     }
   }
 
-  PropertyType getPropertyType(VariableElement field) {
+  PropertyType getPropertyType(VariableElement field, String entity) {
+    long start = stats.start();
+    try {
+      return readPropertyType(field);
+    } finally {
+      stats.end(ProcessingStats.Phase.PROPERTY_TYPE, start, entity);
+    }
+  }
+
+  private PropertyType readPropertyType(VariableElement field) {
+
+    final TypeMirror typeMirror = field.asType();
+    final boolean dbJson = dbJsonField(field);
+    final boolean dbArray = dbArrayField(field);
+    final String targetEntity = singleTypeArgument(typeMirror) ? readTargetEntity(field) : null;
 
-    TypeMirror typeMirror = field.asType();
+    String key = typeMirror.toString() + (dbJson ? "|json" : "|") + (dbArray ? "|array" : "|") + "|" + targetEntity;
+    return typeCache.get(key, k -> resolvePropertyType(typeMirror, dbJson, dbArray, targetEntity));
+  }
+
+  private static boolean singleTypeArgument(TypeMirror typeMirror) {
+    return typeMirror.getKind() == TypeKind.DECLARED && ((DeclaredType) typeMirror).getTypeArguments().size() == 1;
+  }
+
+  /**
+   * Return the property type cache (for reporting hit rates).
+   */
+  PropertyTypeCache getTypeCache() {
+    return typeCache;
+  }
+
+  private PropertyType resolvePropertyType(TypeMirror typeMirror, boolean dbJson, boolean dbArray, String targetEntity) {
 
     TypeMirror currentType = typeMirror;
     while (currentType != null) {
-      PropertyType type = propertyTypeMap.getType(typeDef(currentType));
+      PropertyType type = PROPERTY_TYPE_MAP.getType(typeDef(currentType));
       if (type != null) {
         // simple scalar type
         return type;
@@ -258,15 +525,15 @@ class ProcessingContext implements Constants {
       currentType = (fieldType == null) ? null : fieldType.getSuperclass();
     }
 
-    if (dbJsonField(field)) {
-      return propertyTypeMap.getDbJsonType();
+    if (dbJson) {
+      return PROPERTY_TYPE_MAP.getDbJsonType();
     }
 
-    if (dbArrayField(field)) {
+    if (dbArray) {
       // get generic parameter type
       DeclaredType declaredType = (DeclaredType) typeMirror;
       String fullType = typeDef(declaredType.getTypeArguments().get(0));
-      return new PropertyTypeArray(fullType, Split.shortName(fullType));
+      return typeCache.shared("array:" + fullType, k -> new PropertyTypeArray(fullType, Split.shortName(fullType)));
     }
 
     Element fieldType = typeUtils.asElement(typeMirror);
@@ -279,7 +546,7 @@ class ProcessingContext implements Constants {
 
     if (fieldType.getKind() == ElementKind.ENUM) {
       String fullType = typeDef(typeMirror);
-      return new PropertyTypeEnum(fullType, Split.shortName(fullType));
+      return typeCache.shared("enum:" + fullType, k -> new PropertyTypeEnum(fullType, Split.shortName(fullType)));
     }
 
     if (isEntityOrEmbedded(fieldType)) {
@@ -289,7 +556,7 @@ class ProcessingContext implements Constants {
 
     final PropertyType result;
     if (typeMirror.getKind() == TypeKind.DECLARED) {
-      result = createManyTypeAssoc(field, (DeclaredType) typeMirror);
+      result = createManyTypeAssoc((DeclaredType) typeMirror, targetEntity);
     } else {
       result = null;
     }
@@ -297,10 +564,11 @@ class ProcessingContext implements Constants {
     if (result != null) {
       return result;
     } else {
+      final String fullType = typeDef(typeMirror);
       if (typeInstanceOf(typeMirror, "java.lang.Comparable")) {
-        return new PropertyTypeScalarComparable(typeDef(typeMirror));
+        return typeCache.shared("comparable:" + fullType, k -> new PropertyTypeScalarComparable(fullType));
       } else {
-        return new PropertyTypeScalar(typeDef(typeMirror));
+        return typeCache.shared("scalar:" + fullType, k -> new PropertyTypeScalar(fullType));
       }
     }
   }
@@ -321,15 +589,14 @@ class ProcessingContext implements Constants {
         .anyMatch(t -> typeInstanceOf(t, desiredInterface));
   }
 
-  private PropertyType createManyTypeAssoc(VariableElement field, DeclaredType declaredType) {
+  private PropertyType createManyTypeAssoc(DeclaredType declaredType, String targetEntity) {
     List<? extends TypeMirror> typeArguments = declaredType.getTypeArguments();
     if (typeArguments.size() == 1) {
       Element argElement = typeUtils.asElement(typeArguments.get(0));
       if (isEntityOrEmbedded(argElement)) {
         return createPropertyTypeAssoc(typeDef(argElement.asType()));
       } else {
-        // look for targetEntity annotation attribute
-        final String targetEntity = readTargetEntity(field);
+        // use targetEntity annotation attribute
         if (targetEntity != null) {
           final TypeElement element = elementUtils.getTypeElement(targetEntity);
           if (isEntityOrEmbedded(element)) {
@@ -364,11 +631,12 @@ class ProcessingContext implements Constants {
    * Create the QAssoc PropertyType.
    */
   private PropertyType createPropertyTypeAssoc(String fullName) {
-
-    String[] split = Split.split(fullName);
-    String propertyName = "QAssoc" + split[1];
-    String packageName = packageAppend(split[0]);
-    return new PropertyTypeAssoc(propertyName, packageName);
+    return typeCache.shared("assoc:" + fullName, k -> {
+      String[] split = Split.split(fullName);
+      String propertyName = "QAssoc" + split[1];
+      String packageName = packageAppend(split[0]);
+      return new PropertyTypeAssoc(propertyName, packageName, fullName);
+    });
   }
 
   /**
@@ -383,176 +651,82 @@ class ProcessingContext implements Constants {
   }
 
   /**
-   * Create a file writer for the given class name.
+   * Return the cache of rendered query beans (null when not enabled).
    */
-  JavaFileObject createWriter(String factoryClassName, Element originatingElement) throws IOException {
-    return filer.createSourceFile(factoryClassName, originatingElement);
+  SourceCache getSourceCache() {
+    return sourceCache;
   }
 
   /**
-   * Create a file writer for the given class name without an originating element.
+   * Evict from the source cache and return its summary (null when not enabled).
    */
-  JavaFileObject createWriter(String factoryClassName) throws IOException {
-    return filer.createSourceFile(factoryClassName);
-  }
-
-  void logError(Element e, String msg, Object... args) {
-    messager.printMessage(Diagnostic.Kind.ERROR, String.format(msg, args), e);
-  }
-
-  void logNote(String msg, Object... args) {
-    messager.printMessage(Diagnostic.Kind.NOTE, String.format(msg, args));
-  }
-
-  boolean isGeneratedAvailable() {
-    return generatedAnnotation != null;
-  }
-
-  String getGeneratedAnnotation() {
-    return generatedAnnotation;
-  }
-
-  void readModuleInfo() {
-    String factory = loadMetaInfServices();
-    if (factory != null) {
-      TypeElement factoryType = elementUtils.getTypeElement(factory);
-      if (factoryType != null) {
-        // previous prefixed entities to add back for partial compile
-        final ModuleMeta read = readModuleInfo.read(factoryType);
-        loadedPrefixEntities.addAll(read.getEntities());
-        otherClasses.addAll(read.getOther());
-      }
+  String sourceCacheSummary() {
+    if (sourceCache == null) {
+      return null;
+    }
+    try {
+      sourceCache.evict();
+    } catch (IOException | RuntimeException e) {
+      logNote("Failed to evict from the source cache: %s", e);
     }
+    return sourceCache.summary();
   }
 
   /**
-   * Register an entity with optional dbName.
+   * Set the fingerprint of the bean returning true if it is unchanged from the previous compile.
    */
-  void addEntity(String beanFullName, String dbName) {
-
-    loaded.add(beanFullName);
-    final String pkg = packageOf(beanFullName);
-    if (pkg != null) {
-      allEntityPackages.add(pkg);
-      updateFactoryPackage(pkg);
-    }
-    if (dbName != null) {
-      prefixEntities.add(dbName + ":" + beanFullName);
-      otherDbEntities.computeIfAbsent(dbName, s -> new TreeSet<>()).add(beanFullName);
-    } else {
-      prefixEntities.add(beanFullName);
-      dbEntities.add(beanFullName);
+  boolean unchangedFingerprint(String beanFullName, String fingerprint) {
+    if (queryBeanFingerprints == null) {
+      queryBeanFingerprints = new QueryBeanFingerprints(files.readFingerprints());
     }
+    return queryBeanFingerprints.put(beanFullName, fingerprint);
   }
 
   /**
-   * Add back entity classes for partial compile.
+   * Return the fingerprint of the model (everything that determines its generated query beans).
    */
-  int complete() {
-    int added = 0;
-    for (String oldPrefixEntity : loadedPrefixEntities) {
-      // maybe split as dbName:entityClass
-      final String[] prefixEntityClass = oldPrefixEntity.split(":");
-
-      String dbName = null;
-      String entityClass;
-      if (prefixEntityClass.length > 1) {
-        dbName = prefixEntityClass[0];
-        entityClass = prefixEntityClass[1];
-      } else {
-        entityClass = prefixEntityClass[0];
-      }
-      if (!loaded.contains(entityClass)) {
-        addEntity(entityClass, dbName);
-        added++;
-      }
-    }
-    return added;
-  }
-
-  private String packageOf(String beanFullName) {
-    final int pos = beanFullName.lastIndexOf('.');
-    if (pos > -1) {
-      return beanFullName.substring(0, pos);
+  String fingerprint(QueryBeanModel model, TypeElement element) {
+    List<String> superClasses = new ArrayList<>();
+    Element superElement = typeUtils.asElement(element.getSuperclass());
+    while (superElement instanceof TypeElement) {
+      TypeElement superType = (TypeElement) superElement;
+      superClasses.add(superType.getQualifiedName().toString());
+      superElement = typeUtils.asElement(superType.getSuperclass());
     }
-    return null;
-  }
-
-  private void updateFactoryPackage(String pkg) {
-    if (pkg != null && (factoryPackage == null || factoryPackage.length() > pkg.length())) {
-      factoryPackage = pkg;
-    }
-  }
-
-  FileObject createMetaInfServicesWriter() throws IOException {
-    return createMetaInfWriter(METAINF_SERVICES_MODULELOADER);
+    return QueryBeanFingerprints.fingerprint(model, superClasses);
   }
 
-  FileObject createManifestWriter() throws IOException {
-    return createMetaInfWriter(METAINF_MANIFEST);
-  }
-
-  FileObject createMetaInfWriter(String target) throws IOException {
-    return filer.createResource(StandardLocation.CLASS_OUTPUT, "", target);
-  }
-
-  public boolean hasOtherClasses() {
-    return !otherClasses.isEmpty();
-  }
-
-  public Set<String> getOtherClasses() {
-    return otherClasses;
-  }
-
-  void addOther(Element element) {
-    otherClasses.add(element.toString());
+  /**
+   * Write the fingerprints sidecar (when fingerprints have been set).
+   */
+  void writeFingerprints() {
+    files.writeFingerprints(queryBeanFingerprints);
   }
 
-  Set<String> getPrefixEntities() {
-    return prefixEntities;
+  void logError(Element e, String msg, Object... args) {
+    messager.printMessage(Diagnostic.Kind.ERROR, String.format(msg, args), e);
   }
 
-  Set<String> getDbEntities() {
-    return dbEntities;
+  void logNote(String msg, Object... args) {
+    messager.printMessage(Diagnostic.Kind.NOTE, String.format(msg, args));
   }
 
-  Map<String, Set<String>> getOtherDbEntities() {
-    return otherDbEntities;
+  void logWarning(String msg, Object... args) {
+    messager.printMessage(Diagnostic.Kind.WARNING, String.format(msg, args));
   }
 
-
-  Set<String> getAllEntityPackages() {
-    return allEntityPackages;
+  boolean isGeneratedAvailable() {
+    return generatedAnnotation != null;
   }
 
-  String getFactoryPackage() {
-    return factoryPackage != null ? factoryPackage : "unknown";
+  String getGeneratedAnnotation() {
+    return generatedAnnotation;
   }
 
   /**
-   * Return the class name of the generated ModuleInfoLoader
-   * (such that we can read the current meta data for partial compile).
+   * Return the type element with the given canonical name or null if not found.
    */
-  String loadMetaInfServices() {
-    try {
-      FileObject fileObject = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", METAINF_SERVICES_MODULELOADER);
-      if (fileObject != null) {
-        Reader reader = fileObject.openReader(true);
-        LineNumberReader lineReader = new LineNumberReader(reader);
-        String line = lineReader.readLine();
-        if (line != null) {
-          return line.trim();
-        }
-      }
-
-    } catch (FileNotFoundException | NoSuchFileException e) {
-      // ignore - no services file yet
-    } catch (FilerException e) {
-      logNote(null, "FilerException reading services file: " + e.getMessage());
-    } catch (Exception e) {
-      e.printStackTrace();
-      logError(null, "Error reading services file: " + e.getMessage());
-    }
-    return null;
+  TypeElement getTypeElement(String canonicalName) {
+    return elementUtils.getTypeElement(canonicalName);
   }
 }
@@ -0,0 +1,86 @@
+package io.ebean.querybean.generator;
+
+/**
+ * Flight recorder events for the processing (no-ops when JFR is not available).
+ * <p>
+ * Each method begins an event that is committed with its values when the work is done.
+ * The JFR implementation is compiled for Java 11 (src/main/java11) and loaded reflectively
+ * such that the processor runs on Java 8 and on JDKs without the jdk.jfr module.
+ * </p>
+ */
+interface ProcessingEvents {
+
+  /**
+   * Events that are never recorded.
+   */
+  ProcessingEvents NONE = new ProcessingEvents() {
+    @Override
+    public Round round() {
+      return (processor, round, entities) -> { };
+    }
+
+    @Override
+    public Entity entity() {
+      return (beanName, fieldCount, resolveNanos) -> { };
+    }
+
+    @Override
+    public File file() {
+      return (className, content) -> { };
+    }
+
+    @Override
+    public ModuleInfo moduleInfo() {
+      return (entities, others) -> { };
+    }
+  };
+
+  /**
+   * Return the JFR events when jdk.jfr is available and otherwise NONE.
+   */
+  static ProcessingEvents create() {
+    try {
+      Class.forName("jdk.jfr.Event");
+      Class<?> events = Class.forName("io.ebean.querybean.generator.JfrProcessingEvents");
+      return (ProcessingEvents) events.getDeclaredConstructor().newInstance();
+    } catch (Throwable e) {
+      return NONE;
+    }
+  }
+
+  /**
+   * Begin the event for a processing round.
+   */
+  Round round();
+
+  /**
+   * Begin the event for reading an entity or embeddable bean.
+   */
+  Entity entity();
+
+  /**
+   * Begin the event for rendering a generated source.
+   */
+  File file();
+
+  /**
+   * Begin the event for writing the module info.
+   */
+  ModuleInfo moduleInfo();
+
+  interface Round {
+    void commit(String processor, int round, int entities);
+  }
+
+  interface Entity {
+    void commit(String beanName, int fieldCount, long resolveNanos);
+  }
+
+  interface File {
+    void commit(String className, String content);
+  }
+
+  interface ModuleInfo {
+    void commit(int entities, int others);
+  }
+}
@@ -0,0 +1,265 @@
+package io.ebean.querybean.generator;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Timings and counts of the processing phases (when the stats option is enabled).
+ * <p>
+ * Counters are LongAdders as rendering can run in parallel. When not enabled the
+ * methods are no-ops and no timestamps are taken.
+ * </p>
+ * <p>
+ * The total is from the start of the first round to processingOver (not from when the
+ * processor is initialised). The time of each entity is recorded per phase, reading its
+ * properties (including resolving their types) and rendering its query beans.
+ * </p>
+ */
+class ProcessingStats {
+
+  /**
+   * The number of slowest entities reported.
+   */
+  private static final int TOP_ENTITIES = 10;
+
+  /**
+   * The timed phases (nested phases are included in the time of the outer phase).
+   */
+  enum Phase {
+    READ_MODULE_INFO("readModuleInfo", false),
+    ALL_FIELDS("allFields", false),
+    PROPERTY_TYPE("getPropertyType", true),
+    RENDER("render", false),
+    FILER("filer", true),
+    COMPLETE("complete", false),
+    MODULE_INFO_WRITE("moduleInfoWrite", false);
+
+    private final String label;
+
+    private final boolean nested;
+
+    Phase(String label, boolean nested) {
+      this.label = label;
+      this.nested = nested;
+    }
+  }
+
+  private final boolean enabled;
+
+  private long firstRoundNanos;
+
+  private long overNanos;
+
+  private final LongAdder[] phaseNanos = new LongAdder[Phase.values().length];
+
+  private final LongAdder rounds = new LongAdder();
+
+  private final LongAdder entities = new LongAdder();
+
+  private final LongAdder files = new LongAdder();
+
+  private final LongAdder bytes = new LongAdder();
+
+  private final Map<String, LongAdder[]> entityNanos = new ConcurrentHashMap<>();
+
+  ProcessingStats(boolean enabled) {
+    this.enabled = enabled;
+    for (int i = 0; i < phaseNanos.length; i++) {
+      phaseNanos[i] = new LongAdder();
+    }
+  }
+
+  boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Return the start time of a phase (0 when not enabled).
+   */
+  long start() {
+    return enabled ? System.nanoTime() : 0;
+  }
+
+  /**
+   * Add the time since start to the phase and return the elapsed nanos.
+   */
+  long end(Phase phase, long start) {
+    if (!enabled) {
+      return 0;
+    }
+    long nanos = System.nanoTime() - start;
+    phaseNanos[phase.ordinal()].add(nanos);
+    return nanos;
+  }
+
+  /**
+   * Add the time since start to the phase and to the phase of the entity.
+   */
+  void end(Phase phase, long start, String entity) {
+    if (enabled) {
+      entityNanos.computeIfAbsent(entity, k -> newAdders())[phase.ordinal()].add(end(phase, start));
+    }
+  }
+
+  private static LongAdder[] newAdders() {
+    LongAdder[] adders = new LongAdder[Phase.values().length];
+    for (int i = 0; i < adders.length; i++) {
+      adders[i] = new LongAdder();
+    }
+    return adders;
+  }
+
+  /**
+   * Start the total time (if not already started by an earlier round).
+   */
+  void begin() {
+    if (enabled && firstRoundNanos == 0) {
+      firstRoundNanos = System.nanoTime();
+    }
+  }
+
+  /**
+   * Count a round, the first round starts the total time.
+   */
+  void round() {
+    if (enabled) {
+      rounds.increment();
+      begin();
+    }
+  }
+
+  /**
+   * Processing is over, ends the total time.
+   */
+  void over() {
+    if (enabled && overNanos == 0) {
+      overNanos = System.nanoTime();
+    }
+  }
+
+  private long totalNanos() {
+    if (firstRoundNanos == 0) {
+      return 0;
+    }
+    return (overNanos == 0 ? System.nanoTime() : overNanos) - firstRoundNanos;
+  }
+
+  void entity() {
+    if (enabled) {
+      entities.increment();
+    }
+  }
+
+  /**
+   * Count a file written with the given content.
+   */
+  void file(String content) {
+    if (enabled) {
+      files.increment();
+      bytes.add(content.getBytes(StandardCharsets.UTF_8).length);
+    }
+  }
+
+  /**
+   * Return the entities with the highest total time (of the outer phases).
+   */
+  private List<Map.Entry<String, LongAdder[]>> slowestEntities() {
+    List<Map.Entry<String, LongAdder[]>> entries = new ArrayList<>(entityNanos.entrySet());
+    entries.sort((e1, e2) -> Long.compare(sum(e2.getValue()), sum(e1.getValue())));
+    return entries.size() > TOP_ENTITIES ? entries.subList(0, TOP_ENTITIES) : entries;
+  }
+
+  private static long sum(LongAdder[] adders) {
+    long sum = 0;
+    for (Phase phase : Phase.values()) {
+      if (!phase.nested) {
+        sum += adders[phase.ordinal()].sum();
+      }
+    }
+    return sum;
+  }
+
+  private static String millis(long nanos) {
+    return String.format(Locale.ROOT, "%.3f", nanos / 1_000_000.0);
+  }
+
+  /**
+   * Return a one line summary (for logging).
+   */
+  String summary(String processor) {
+    StringBuilder sb = new StringBuilder(256);
+    sb.append("Ebean APT stats ").append(processor)
+      .append(" rounds ").append(rounds.sum())
+      .append(", entities ").append(entities.sum())
+      .append(", files ").append(files.sum())
+      .append(" (").append(bytes.sum()).append(" bytes)")
+      .append(", total ").append(millis(totalNanos())).append("ms -");
+    for (Phase phase : Phase.values()) {
+      long nanos = phaseNanos[phase.ordinal()].sum();
+      if (nanos > 0) {
+        sb.append(' ').append(phase.label).append(' ').append(millis(nanos)).append("ms");
+      }
+    }
+    List<Map.Entry<String, LongAdder[]>> slowest = slowestEntities();
+    if (!slowest.isEmpty()) {
+      sb.append(" - slowest");
+      for (Map.Entry<String, LongAdder[]> entry : slowest) {
+        sb.append(' ').append(entry.getKey()).append(' ').append(millis(sum(entry.getValue()))).append("ms (");
+        boolean first = true;
+        for (Phase phase : Phase.values()) {
+          long nanos = entry.getValue()[phase.ordinal()].sum();
+          if (nanos > 0) {
+            sb.append(first ? "" : ", ").append(phase.label).append(' ').append(millis(nanos)).append("ms");
+            first = false;
+          }
+        }
+        sb.append(')');
+      }
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Return the JSON report.
+   */
+  String toJson(String processor, int skipped) {
+    CodeWriter writer = new CodeWriter(2048);
+    writer.append("{").eol();
+    writer.indent(1).append("\"processor\": \"").append(processor).append("\",").eol();
+    writer.indent(1).append("\"rounds\": ").append(Long.toString(rounds.sum())).append(",").eol();
+    writer.indent(1).append("\"entities\": ").append(Long.toString(entities.sum())).append(",").eol();
+    writer.indent(1).append("\"files\": ").append(Long.toString(files.sum())).append(",").eol();
+    writer.indent(1).append("\"bytes\": ").append(Long.toString(bytes.sum())).append(",").eol();
+    writer.indent(1).append("\"skipped\": ").append(skipped).append(",").eol();
+    writer.indent(1).append("\"totalMillis\": ").append(millis(totalNanos())).append(",").eol();
+    writer.line(1, "\"phaseMillis\": {");
+    Phase[] phases = Phase.values();
+    for (int i = 0; i < phases.length; i++) {
+      writer.indent(2).append('"').append(phases[i].label).append("\": ").append(millis(phaseNanos[i].sum()));
+      writer.append(i < phases.length - 1 ? "," : "").eol();
+    }
+    writer.line(1, "},");
+    writer.line(1, "\"slowestEntities\": [");
+    List<Map.Entry<String, LongAdder[]>> slowest = slowestEntities();
+    for (int i = 0; i < slowest.size(); i++) {
+      Map.Entry<String, LongAdder[]> entry = slowest.get(i);
+      writer.indent(2).append("{\"name\": \"").append(entry.getKey()).append("\", \"millis\": ").append(millis(sum(entry.getValue())));
+      for (Phase phase : Phase.values()) {
+        long nanos = entry.getValue()[phase.ordinal()].sum();
+        if (nanos > 0) {
+          writer.append(", \"").append(phase.label).append("\": ").append(millis(nanos));
+        }
+      }
+      writer.append('}');
+      writer.append(i < slowest.size() - 1 ? "," : "").eol();
+    }
+    writer.line(1, "]");
+    writer.append("}").eol();
+    return writer.toString();
+  }
+}
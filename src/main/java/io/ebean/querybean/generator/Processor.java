@@ -6,17 +6,33 @@ import javax.annotation.processing.RoundEnvironment;
 import javax.lang.model.SourceVersion;
 import javax.lang.model.element.Element;
 import javax.lang.model.element.TypeElement;
-import java.util.Arrays;
 import java.util.LinkedHashSet;
 import java.util.Set;
 
 /**
  * Process compiled entity beans and generates 'query beans' for them.
+ * <p>
+ * This is an isolating processor (for Gradle incremental compile) with each query bean
+ * generated from exactly one entity or embeddable bean. With the include, exclude or
+ * pruneAssoc options the query beans depend on the other beans of the round so it is
+ * then aggregating. The ModuleInfoLoader is generated
+ * by the aggregating {@link ModuleInfoProcessor} and a warning is logged when it is not registered.
+ * </p>
  */
 public class Processor extends AbstractProcessor implements Constants {
 
   private ProcessingContext processingContext;
 
+  private ReadQueryBeanModel readQueryBeanModel;
+
+  private int rounds;
+
+  private int generatedCount;
+
+  private int prunedCount;
+
+  private boolean beansRead;
+
   public Processor() {
   }
 
@@ -24,6 +40,7 @@ public class Processor extends AbstractProcessor implements Constants {
   public synchronized void init(ProcessingEnvironment processingEnv) {
     super.init(processingEnv);
     this.processingContext = new ProcessingContext(processingEnv);
+    this.readQueryBeanModel = new ReadQueryBeanModel(processingContext);
   }
 
   @Override
@@ -31,12 +48,31 @@ public class Processor extends AbstractProcessor implements Constants {
     Set<String> annotations = new LinkedHashSet<>();
     annotations.add(ENTITY);
     annotations.add(EMBEDDABLE);
-    annotations.add(CONVERTER);
-    annotations.add(EBEAN_COMPONENT);
-    annotations.add(MODULEINFO);
     return annotations;
   }
 
+  @Override
+  public Set<String> getSupportedOptions() {
+    Set<String> options = new LinkedHashSet<>();
+    options.add(OPTION_PARALLELISM);
+    options.add(OPTION_SKIP_UNCHANGED);
+    options.add(OPTION_STATS);
+    options.add(OPTION_INCLUDE);
+    options.add(OPTION_EXCLUDE);
+    options.add(OPTION_PRUNE_ASSOC);
+    options.add(OPTION_KEEP_ASSOC);
+    options.add(OPTION_COMPACT);
+    options.add(OPTION_ALIAS);
+    options.add(OPTION_FINGERPRINTS);
+    options.add(OPTION_CACHE_DIR);
+    options.add(OPTION_CACHE_MAX_SIZE);
+    if (processingContext != null) {
+      // registered as dynamic, Gradle reads the incremental kind after init
+      options.add(processingContext.isAggregating() ? GRADLE_AGGREGATING : GRADLE_ISOLATING);
+    }
+    return options;
+  }
+
   @Override
   public SourceVersion getSupportedSourceVersion() {
     return SourceVersion.latest();
@@ -44,61 +80,69 @@ public class Processor extends AbstractProcessor implements Constants {
 
   @Override
   public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
-    processingContext.readModuleInfo();
-    int count = processEntities(roundEnv);
-    processOthers(roundEnv);
-    final int loaded = processingContext.complete();
     if (roundEnv.processingOver()) {
-      writeModuleInfoBean();
+      if (generatedCount > 0) {
+        String msg = "Ebean APT generated %s query beans in %s rounds, skipped %s unchanged files - %s";
+        processingContext.logNote(msg, generatedCount, rounds, processingContext.getGeneratedFiles().getSkippedCount(), processingContext.getTypeCache().summary());
+      }
+      if (prunedCount > 0) {
+        processingContext.logNote("Ebean APT pruned %s assoc beans that are not association targets", prunedCount);
+      }
+      String sourceCache = processingContext.sourceCacheSummary();
+      if (sourceCache != null) {
+        processingContext.logNote("Ebean APT %s", sourceCache);
+      }
+      if (beansRead && !ModuleInfoProcessor.isRegistered(processingEnv.getElementUtils())) {
+        // entity beans are supported by both, so the ModuleInfoProcessor has run by now when registered
+        processingContext.logWarning("Ebean APT generated no _ebean$ModuleInfo as %s is not a registered processor", ModuleInfoProcessor.class.getName());
+      }
+      processingContext.writeFingerprints();
+      processingContext.getGeneratedFiles().writeStats("Processor", SOURCE_STATS);
+    } else if (!processingContext.getGeneratedFiles().isGeneratedOnly(roundEnv.getRootElements())) {
+      processRound(roundEnv);
     }
+    // not claimed, the ModuleInfoProcessor also processes the entity beans
+    return false;
+  }
+
+  /**
+   * Generate query beans for the round.
+   */
+  private void processRound(RoundEnvironment roundEnv) {
+    long start = System.nanoTime();
+    ProcessingEvents.Round event = processingContext.getEvents().round();
+    processingContext.startRound();
+    processingContext.getStats().round();
+    int count = processEntities(roundEnv);
+    rounds++;
+    generatedCount += count;
+    event.commit("Processor", rounds, count);
     if (count > 0) {
-      String msg = "Ebean APT generated %s query beans, loaded %s others - META-INF/ebean-generated-info.mf entity-packages: %s";
-      processingContext.logNote(msg, count, loaded, processingContext.getAllEntityPackages());
+      long millis = (System.nanoTime() - start) / 1_000_000;
+      processingContext.logNote("Ebean APT round %s generated %s query beans in %sms", rounds, count, millis);
     }
-    return true;
   }
 
   private int processEntities(RoundEnvironment roundEnv) {
-    int count = 0;
+    RenderPipeline pipeline = new RenderPipeline(processingContext);
     for (Element element : roundEnv.getElementsAnnotatedWith(processingContext.embeddableAnnotation())) {
-      generateQueryBeans(element);
-      count++;
+      readQueryBean(pipeline, element);
     }
     for (Element element : roundEnv.getElementsAnnotatedWith(processingContext.entityAnnotation())) {
-      generateQueryBeans(element);
-      count++;
+      readQueryBean(pipeline, element);
     }
+    int count = pipeline.write();
+    prunedCount += pipeline.getPrunedCount();
     return count;
   }
 
-  private void processOthers(RoundEnvironment round) {
-    processOthers(round, processingContext.converterAnnotation());
-    processOthers(round, processingContext.componentAnnotation());
-  }
-
-  private void processOthers(RoundEnvironment roundEnv, TypeElement otherType) {
-    if (otherType != null) {
-      for (Element element : roundEnv.getElementsAnnotatedWith(otherType)) {
-        processingContext.addOther(element);
-      }
-    }
-  }
-
-  private void writeModuleInfoBean() {
-    try {
-      SimpleModuleInfoWriter writer = new SimpleModuleInfoWriter(processingContext);
-      writer.write();
-    } catch (Throwable e) {
-      e.printStackTrace();
-      processingContext.logError(null, "Failed to write ModuleInfoLoader error:" + e + " stack:" + Arrays.toString(e.getStackTrace()));
-    }
-  }
-
-  private void generateQueryBeans(Element element) {
+  /**
+   * Read the model for the bean (on the processor thread).
+   */
+  private void readQueryBean(RenderPipeline pipeline, Element element) {
+    beansRead = true;
     try {
-      SimpleQueryBeanWriter beanWriter = new SimpleQueryBeanWriter((TypeElement) element, processingContext);
-      beanWriter.writeRootBean();
-      beanWriter.writeAssocBean();
+      pipeline.add(readQueryBeanModel.read((TypeElement) element), element);
     } catch (Throwable e) {
       e.printStackTrace();
       processingContext.logError(element, "Error generating query beans: " + e);
@@ -1,5 +1,7 @@
 package io.ebean.querybean.generator;
 
+import java.util.Set;
+
 /**
  * Meta data for a property.
  */
@@ -30,17 +32,38 @@ class PropertyMeta {
     return type.getTypeDefn(shortName, assoc);
   }
 
-  void writeFieldDefn(Append writer, String shortName, boolean assoc) {
+  /**
+   * Add the imports required for this property.
+   */
+  void addImports(Set<String> allImports) {
+    type.addImports(allImports);
+  }
+
+  /**
+   * Return the full class name of the associated bean or null if this is not an association.
+   */
+  String assocTarget() {
+    return type.assocTarget();
+  }
+
+  /**
+   * Append the name and type definitions of the property to the fingerprint content.
+   */
+  void fingerprint(StringBuilder sb, String shortName) {
+    sb.append(name).append(' ').append(getTypeDefn(shortName, false)).append(' ').append(getTypeDefn(shortName, true));
+  }
+
+  void writeFieldDefn(CodeWriter writer, String shortName, boolean assoc) {
 
-    writer.append("  public ");
+    writer.indent(1).append("public ");
     writer.append(getTypeDefn(shortName, assoc));
-    writer.append(" ").append(name).append(";");
+    writer.append(' ').append(name).append(';');
   }
 
-  void writeFieldAliasDefn(Append writer, String shortName) {
+  void writeFieldAliasDefn(CodeWriter writer, String shortName) {
 
-    writer.append("    public static ");
+    writer.indent(2).append("public static ");
     writer.append(getTypeDefn(shortName, false));
-    writer.append(" ").append(name).append(" = _alias.").append(name).append(";");
+    writer.append(' ').append(name).append(" = _alias.").append(name).append(';');
   }
 }
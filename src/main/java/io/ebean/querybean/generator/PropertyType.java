@@ -40,6 +40,13 @@ class PropertyType {
     }
   }
 
+  /**
+   * Return the full class name of the associated bean or null if this is not an association.
+   */
+  String assocTarget() {
+    return null;
+  }
+
   /**
    * Add any required imports for this property to the allImports set.
    */
@@ -12,15 +12,27 @@ class PropertyTypeAssoc extends PropertyType {
    */
   private final String assocPackage;
 
+  /**
+   * The full class name of the associated bean.
+   */
+  private final String target;
+
   /**
    * Construct given the associated bean type name and package.
    *
    * @param qAssocTypeName the associated bean type name.
    * @param assocPackage   the associated bean package.
+   * @param target         the associated bean class name.
    */
-  PropertyTypeAssoc(String qAssocTypeName, String assocPackage) {
+  PropertyTypeAssoc(String qAssocTypeName, String assocPackage, String target) {
     super(qAssocTypeName);
     this.assocPackage = assocPackage;
+    this.target = target;
+  }
+
+  @Override
+  String assocTarget() {
+    return target;
   }
 
   /**
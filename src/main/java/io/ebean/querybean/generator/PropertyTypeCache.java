@@ -0,0 +1,68 @@
+package io.ebean.querybean.generator;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Per compilation cache of resolved property types.
+ * <p>
+ * Resolved types are keyed by the field type plus the field annotations that affect
+ * resolution (DbJson, DbArray and targetEntity). PropertyTypes are immutable and shared
+ * as flyweights across all the fields and entities that use them.
+ * </p>
+ */
+class PropertyTypeCache {
+
+  /**
+   * Marker for a field type that resolves to no property type.
+   */
+  private static final PropertyType NONE = new PropertyType("NONE");
+
+  private final Map<String, PropertyType> resolved = new HashMap<>();
+
+  private final Map<String, PropertyType> shared = new HashMap<>();
+
+  private long hits;
+
+  private long misses;
+
+  /**
+   * Return the resolved property type for the key or resolve and cache it.
+   */
+  PropertyType get(String key, Function<String, PropertyType> resolve) {
+    PropertyType type = resolved.get(key);
+    if (type != null) {
+      hits++;
+    } else {
+      misses++;
+      type = resolve.apply(key);
+      resolved.put(key, type == null ? NONE : type);
+    }
+    return type == NONE ? null : type;
+  }
+
+  /**
+   * Return the shared instance of the property type for the given key creating it if needed.
+   */
+  PropertyType shared(String key, Function<String, PropertyType> create) {
+    return shared.computeIfAbsent(key, create);
+  }
+
+  long getHits() {
+    return hits;
+  }
+
+  long getMisses() {
+    return misses;
+  }
+
+  /**
+   * Return a summary of the cache hit rate (for logging).
+   */
+  String summary() {
+    long total = hits + misses;
+    long hitRate = (total == 0) ? 0 : (hits * 100 / total);
+    return String.format("property types resolved %s, cache hits %s (%s%%)", misses, hits, hitRate);
+  }
+}
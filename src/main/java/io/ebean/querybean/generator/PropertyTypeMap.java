@@ -17,6 +17,9 @@ import java.util.UUID;
 
 /**
  * Holds the Property types and how they match to class types.
+ * <p>
+ * Immutable after construction and shared by all compilations in the JVM.
+ * </p>
  */
 class PropertyTypeMap {
 
@@ -25,7 +28,7 @@ class PropertyTypeMap {
    */
   private final PropertyType dbJsonType = new PropertyType("PJson");
 
-  private Map<String,PropertyType> map = new HashMap<>();
+  private final Map<String,PropertyType> map = new HashMap<>();
 
   PropertyTypeMap() {
 
@@ -0,0 +1,162 @@
+package io.ebean.querybean.generator;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Fingerprints of the query bean models used to skip rendering the query beans of
+ * beans whose shape has not changed.
+ * <p>
+ * The fingerprint is the hash of everything that determines the generated source. That is
+ * the resolved properties, imports, dbName, super class chain, rendering options, generator
+ * version and a hash of the generator jar. The fingerprints are held in a line oriented sidecar file next to the generated
+ * sources (SOURCE_OUTPUT) with a versioned header. For example:
+ * </p>
+ * <pre>
+ * querybean-fingerprints 1
+ * org.example.domain.Customer 3f2a9c0e5b1d7a64e0c2d1b04f6e8a3c9b27d5f1e0a6c4b8d2e9f3a7c1b5d0e4
+ * org.example.domain.Address 8c1e0b7d2f6a93451b7d0e2c4a6f8b1d3e5c7a9f0b2d4e6c8a1f3b5d7e9c0a2b4
+ * </pre>
+ */
+class QueryBeanFingerprints {
+
+  private static final String HEADER = "querybean-fingerprints";
+
+  /**
+   * Increment when the format of the sidecar or of the fingerprint content changes.
+   */
+  private static final int VERSION = 1;
+
+  private static final String GENERATOR_VERSION = generatorVersion();
+
+  private final Map<String, String> previous;
+
+  private final Map<String, String> current = new TreeMap<>();
+
+  QueryBeanFingerprints(Map<String, String> previous) {
+    this.previous = previous;
+  }
+
+  /**
+   * Return the generator version and hash of the generator classes (the version of a
+   * snapshot or development build does not change when the generator does).
+   */
+  private static String generatorVersion() {
+    String version = QueryBeanFingerprints.class.getPackage().getImplementationVersion();
+    return (version == null ? "dev" : version) + ":" + generatorHash();
+  }
+
+  /**
+   * Return the hash of the generator jar or class files directory.
+   * <p>
+   * When they can not be read a random value is used such that nothing from a previous
+   * compile (or the source cache) is reused rather than risking stale query beans.
+   * </p>
+   */
+  static String generatorHash() {
+    try {
+      Path path = Paths.get(QueryBeanFingerprints.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+      MessageDigest digest = ContentHash.newDigest();
+      if (Files.isDirectory(path)) {
+        List<Path> classFiles = new ArrayList<>();
+        try (Stream<Path> paths = Files.walk(path)) {
+          paths.filter(p -> p.toString().endsWith(".class")).forEach(classFiles::add);
+        }
+        Collections.sort(classFiles);
+        for (Path classFile : classFiles) {
+          digest.update(path.relativize(classFile).toString().getBytes(StandardCharsets.UTF_8));
+          digest.update(Files.readAllBytes(classFile));
+        }
+      } else {
+        digest.update(Files.readAllBytes(path));
+      }
+      return ContentHash.hex(digest).substring(0, 16);
+    } catch (Exception e) {
+      return UUID.randomUUID().toString();
+    }
+  }
+
+  /**
+   * Return the fingerprint of the model given the names of its super classes.
+   */
+  static String fingerprint(QueryBeanModel model, List<String> superClasses) {
+    StringBuilder sb = new StringBuilder(512);
+    sb.append(VERSION).append('|').append(GENERATOR_VERSION);
+    sb.append('|').append(model.getBeanFullName()).append('|').append(model.getDbName());
+    sb.append('|').append(model.isEntity()).append(model.isEmbeddable()).append(model.isGeneratedAvailable());
+    sb.append(model.isCompact()).append(model.isAlias());
+    for (String superClass : superClasses) {
+      sb.append('|').append(superClass);
+    }
+    for (String importType : model.getImportTypes()) {
+      sb.append('|').append(importType);
+    }
+    for (PropertyMeta property : model.getProperties()) {
+      sb.append('|');
+      property.fingerprint(sb, model.getShortName());
+    }
+    return ContentHash.sha256(sb);
+  }
+
+  /**
+   * Set the fingerprint of the bean returning true if it matches the previous fingerprint.
+   */
+  boolean put(String beanFullName, String fingerprint) {
+    current.put(beanFullName, fingerprint);
+    return fingerprint.equals(previous.get(beanFullName));
+  }
+
+  /**
+   * Return true if fingerprints have been set (and the sidecar should be written).
+   */
+  boolean isModified() {
+    return !current.isEmpty();
+  }
+
+  /**
+   * Render the sidecar with the current fingerprints and the previous fingerprints of
+   * the beans not processed (partial compile).
+   */
+  String render() {
+    Map<String, String> all = new TreeMap<>(previous);
+    all.putAll(current);
+    StringBuilder sb = new StringBuilder(HEADER).append(' ').append(VERSION).append('\n');
+    for (Map.Entry<String, String> entry : all.entrySet()) {
+      sb.append(entry.getKey()).append(' ').append(entry.getValue()).append('\n');
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Read the fingerprints of the sidecar returning an empty map if it is not a supported version.
+   */
+  static Map<String, String> read(Reader reader) throws IOException {
+    Map<String, String> fingerprints = new TreeMap<>();
+    BufferedReader lineReader = new BufferedReader(reader);
+    String header = lineReader.readLine();
+    if (header == null || !header.equals(HEADER + " " + VERSION)) {
+      return fingerprints;
+    }
+    String line;
+    while ((line = lineReader.readLine()) != null) {
+      String[] cols = line.split(" ");
+      if (cols.length == 2) {
+        fingerprints.put(cols[0], cols[1]);
+      }
+    }
+    return fingerprints;
+  }
+}
@@ -0,0 +1,136 @@
+package io.ebean.querybean.generator;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Immutable model of an entity or embeddable bean used to render its query beans.
+ * <p>
+ * This holds no javac types such that rendering can occur off the processor thread.
+ */
+class QueryBeanModel {
+
+  private final String beanFullName;
+  private final String packageName;
+  private final String shortName;
+  private final String dbName;
+  private final boolean entity;
+  private final boolean embeddable;
+  private final boolean generatedAvailable;
+  private final boolean compact;
+  private final boolean alias;
+  private final List<PropertyMeta> properties;
+  private final Set<String> importTypes;
+
+  QueryBeanModel(String beanFullName, String dbName, boolean entity, boolean embeddable, boolean generatedAvailable,
+                 boolean compact, boolean alias, List<PropertyMeta> properties, Set<String> importTypes) {
+    this.beanFullName = beanFullName;
+    this.packageName = derivePackage(beanFullName);
+    this.shortName = Split.shortName(beanFullName);
+    this.dbName = dbName;
+    this.entity = entity;
+    this.embeddable = embeddable;
+    this.generatedAvailable = generatedAvailable;
+    this.compact = compact;
+    this.alias = alias;
+    this.properties = Collections.unmodifiableList(properties);
+    this.importTypes = Collections.unmodifiableSet(importTypes);
+  }
+
+  private static String derivePackage(String name) {
+    int pos = name.lastIndexOf('.');
+    if (pos == -1) {
+      return "";
+    }
+    return name.substring(0, pos);
+  }
+
+  String getBeanFullName() {
+    return beanFullName;
+  }
+
+  /**
+   * Return the package of the entity bean.
+   */
+  String getPackageName() {
+    return packageName;
+  }
+
+  /**
+   * Return the short name of the entity bean.
+   */
+  String getShortName() {
+    return shortName;
+  }
+
+  String getDbName() {
+    return dbName;
+  }
+
+  boolean isEntity() {
+    return entity;
+  }
+
+  boolean isEmbeddable() {
+    return embeddable;
+  }
+
+  boolean isGeneratedAvailable() {
+    return generatedAvailable;
+  }
+
+  /**
+   * Return true to render compact query beans without Javadoc.
+   */
+  boolean isCompact() {
+    return compact;
+  }
+
+  /**
+   * Return true to render the static Alias class of the root query bean.
+   */
+  boolean isAlias() {
+    return alias;
+  }
+
+  List<PropertyMeta> getProperties() {
+    return properties;
+  }
+
+  /**
+   * Return the imports for the root query bean.
+   */
+  Set<String> getImportTypes() {
+    return importTypes;
+  }
+
+  /**
+   * Return the class names of the associated beans of the properties.
+   */
+  Set<String> assocTargets() {
+    Set<String> targets = new LinkedHashSet<>();
+    for (PropertyMeta property : properties) {
+      String target = property.assocTarget();
+      if (target != null) {
+        targets.add(target);
+      }
+    }
+    return targets;
+  }
+
+  /**
+   * Return the full class name of the root query bean.
+   */
+  String rootBeanName() {
+    return packageName + ".query.Q" + shortName;
+  }
+
+  /**
+   * Return the full class name of the assoc query bean.
+   */
+  String assocBeanName() {
+    return packageName + ".query.assoc.QAssoc" + shortName;
+  }
+}
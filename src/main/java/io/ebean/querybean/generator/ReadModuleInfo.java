@@ -4,6 +4,8 @@ import javax.lang.model.element.AnnotationMirror;
 import javax.lang.model.element.AnnotationValue;
 import javax.lang.model.element.Element;
 import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.ElementFilter;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -24,16 +26,20 @@ class ReadModuleInfo {
   }
 
   ModuleMeta read(Element element) {
-    final List<? extends AnnotationMirror> mirrors = element.getAnnotationMirrors();
-    for (AnnotationMirror mirror : mirrors) {
-      final String name = mirror.getAnnotationType().asElement().toString();
-      if (Constants.MODULEINFO.equals(name)) {
-        List<String> entities = readEntities("entities", mirror);
-        List<String> other = readEntities("other", mirror);
-        return new ModuleMeta(entities, other);
+    final AnnotationMirror mirror = ctx.getAnnotation(element, Constants.MODULEINFO);
+    if (mirror == null) {
+      return null;
+    }
+    List<String> entities = new ArrayList<>(readEntities("entities", mirror));
+    List<String> other = readEntities("other", mirror);
+    for (TypeElement shard : ElementFilter.typesIn(element.getEnclosedElements())) {
+      // entities of a sharded module info
+      final AnnotationMirror shardMirror = ctx.getAnnotation(shard, Constants.MODULEINFO);
+      if (shardMirror != null) {
+        entities.addAll(readEntities("entities", shardMirror));
       }
     }
-    return null;
+    return new ModuleMeta(entities, other);
   }
 
   @SuppressWarnings("unchecked")
@@ -0,0 +1,57 @@
+package io.ebean.querybean.generator;
+
+import javax.lang.model.element.TypeElement;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Helper to read an entity or embeddable bean into a QueryBeanModel.
+ * <p>
+ * This must be used on the processor thread as it uses the javac model.
+ */
+class ReadQueryBeanModel {
+
+  private final ProcessingContext ctx;
+
+  ReadQueryBeanModel(ProcessingContext ctx) {
+    this.ctx = ctx;
+  }
+
+  QueryBeanModel read(TypeElement element) {
+
+    final String beanFullName = element.getQualifiedName().toString();
+    final String dbName = ctx.findDbName(element);
+
+    Set<String> importTypes = new TreeSet<>();
+    final String generated = ctx.getGeneratedAnnotation();
+    if (generated != null) {
+      importTypes.add(generated);
+    }
+    importTypes.add(beanFullName);
+    importTypes.add(Constants.TQROOTBEAN);
+    importTypes.add(Constants.TYPEQUERYBEAN);
+    importTypes.add(Constants.DATABASE);
+    importTypes.add(Constants.FETCHGROUP);
+    importTypes.add(Constants.QUERY);
+    importTypes.add(Constants.TRANSACTION);
+    if (dbName != null) {
+      importTypes.add(Constants.DB);
+    }
+
+    final ProcessingEvents.Entity event = ctx.getEvents().entity();
+    final ProcessingStats stats = ctx.getStats();
+    long start = System.nanoTime();
+    List<PropertyMeta> properties = ctx.allProperties(element, beanFullName);
+    long resolveNanos = System.nanoTime() - start;
+    stats.end(ProcessingStats.Phase.ALL_FIELDS, start, beanFullName);
+    stats.entity();
+    for (PropertyMeta property : properties) {
+      property.addImports(importTypes);
+    }
+
+    event.commit(beanFullName, properties.size(), resolveNanos);
+    return new QueryBeanModel(beanFullName, dbName, ctx.isEntity(element), ctx.isEmbeddable(element),
+      ctx.isGeneratedAvailable(), ctx.isCompact(), ctx.isAlias(), properties, importTypes);
+  }
+}
@@ -0,0 +1,317 @@
+package io.ebean.querybean.generator;
+
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Predicate;
+
+/**
+ * Renders the root and assoc query beans for the models gathered in a round.
+ * <p>
+ * Query beans are generated for the beans matching the include and exclude filter and
+ * any other bean of the round that they reach via associations (as the generated assoc
+ * beans refer to those query beans). A note is logged for each excluded bean that gets
+ * query beans as it is reached.
+ * </p>
+ * <p>
+ * When pruning, assoc query beans are only generated for the beans that are association
+ * targets of the generated query beans (or are explicitly kept). As this is determined from
+ * the beans of the round it requires a full compile of the module.
+ * </p>
+ * <p>
+ * With fingerprints, the query beans of beans with an unchanged fingerprint are not rendered
+ * or written when they already exist in the source output.
+ * </p>
+ * <p>
+ * With a source cache, sources previously rendered for the same fingerprint are read from
+ * the cache instead of being rendered (and are then written via the Filer as normal).
+ * </p>
+ * <p>
+ * Rendering runs in parallel on a fork join pool when the parallelism is greater
+ * than 1. Writing via the Filer always occurs serially on the processor thread.
+ * </p>
+ */
+class RenderPipeline {
+
+  /**
+   * Rendering buffers reused by the rendering threads, cleared after rendering such that
+   * they are not retained between rounds or compiles.
+   */
+  private final Queue<CodeWriter> buffers = new ConcurrentLinkedQueue<>();
+
+  private final ProcessingContext ctx;
+
+  private final List<Model> models = new ArrayList<>();
+
+  private final List<Source> sources = new ArrayList<>();
+
+  private int prunedCount;
+
+  RenderPipeline(ProcessingContext ctx) {
+    this.ctx = ctx;
+  }
+
+  /**
+   * Add the model to render. Entities get both root and assoc query beans.
+   */
+  void add(QueryBeanModel model, Element element) {
+    models.add(new Model(model, element));
+  }
+
+  /**
+   * Add the sources of the root and assoc query beans to generate.
+   *
+   * @return the number of beans that have query beans generated
+   */
+  private int addSources() {
+    final ClassNameFilter filter = ctx.getFilter();
+    final List<QueryBeanModel> beans = beanModels();
+    final Set<String> reachable = filter.isEmpty() ? null : reachable(beans, filter);
+    if (reachable != null) {
+      for (String name : new TreeSet<>(reachable)) {
+        if (filter.isExcluded(name)) {
+          ctx.logNote("Ebean APT generating query beans of excluded %s as included beans reference it", name);
+        }
+      }
+    }
+    final Set<String> targets = ctx.isPruneAssoc() ? assocTargets(beans, reachable, ctx::isKeepAssoc) : null;
+    int count = 0;
+    for (Model entry : models) {
+      QueryBeanModel model = entry.model;
+      if (reachable == null || reachable.contains(model.getBeanFullName())) {
+        String fingerprint = null;
+        if (ctx.isFingerprints() || ctx.getSourceCache() != null) {
+          fingerprint = ctx.fingerprint(model, (TypeElement) entry.element);
+        }
+        boolean unchanged = ctx.isFingerprints() && ctx.unchangedFingerprint(model.getBeanFullName(), fingerprint);
+        if (model.isEntity()) {
+          addSource(new Source(model, entry.element, false, fingerprint), unchanged);
+        }
+        if (targets == null || targets.contains(model.getBeanFullName())) {
+          addSource(new Source(model, entry.element, true, fingerprint), unchanged);
+        } else {
+          prunedCount++;
+        }
+        count++;
+      }
+    }
+    models.clear();
+    return count;
+  }
+
+  /**
+   * Add the source to render unless the model is unchanged and the source has been compiled.
+   */
+  private void addSource(Source source, boolean unchanged) {
+    GeneratedFiles files = ctx.getGeneratedFiles();
+    if (unchanged && files.compiled(source.className())) {
+      files.skipSource(source.className());
+    } else {
+      sources.add(source);
+    }
+  }
+
+  /**
+   * Return the beans matching the filter and the beans they reach via associations.
+   */
+  static Set<String> reachable(List<QueryBeanModel> beans, ClassNameFilter filter) {
+    Map<String, QueryBeanModel> byName = new HashMap<>();
+    Deque<String> queue = new ArrayDeque<>();
+    for (QueryBeanModel bean : beans) {
+      String name = bean.getBeanFullName();
+      byName.put(name, bean);
+      if (filter.test(name)) {
+        queue.add(name);
+      }
+    }
+    Set<String> reachable = new HashSet<>();
+    while (!queue.isEmpty()) {
+      String name = queue.poll();
+      if (reachable.add(name)) {
+        QueryBeanModel model = byName.get(name);
+        if (model != null) {
+          queue.addAll(model.assocTargets());
+        }
+      }
+    }
+    return reachable;
+  }
+
+  /**
+   * Return the beans that need assoc query beans, the association targets of the generated
+   * beans and the kept beans (and in turn the association targets of those assoc beans).
+   */
+  static Set<String> assocTargets(List<QueryBeanModel> beans, Set<String> reachable, Predicate<String> keepAssoc) {
+    Map<String, QueryBeanModel> byName = new HashMap<>();
+    Deque<String> queue = new ArrayDeque<>();
+    for (QueryBeanModel bean : beans) {
+      String name = bean.getBeanFullName();
+      if (reachable == null || reachable.contains(name)) {
+        byName.put(name, bean);
+        if (bean.isEntity()) {
+          queue.addAll(bean.assocTargets());
+        }
+        if (keepAssoc.test(name)) {
+          queue.add(name);
+        }
+      }
+    }
+    Set<String> targets = new HashSet<>();
+    while (!queue.isEmpty()) {
+      String name = queue.poll();
+      if (targets.add(name)) {
+        QueryBeanModel model = byName.get(name);
+        if (model != null) {
+          queue.addAll(model.assocTargets());
+        }
+      }
+    }
+    return targets;
+  }
+
+  private List<QueryBeanModel> beanModels() {
+    List<QueryBeanModel> beans = new ArrayList<>(models.size());
+    for (Model entry : models) {
+      beans.add(entry.model);
+    }
+    return beans;
+  }
+
+  /**
+   * Return the number of assoc query beans not generated as they are not association targets.
+   */
+  int getPrunedCount() {
+    return prunedCount;
+  }
+
+  /**
+   * Render all the query beans and then write them via the Filer.
+   *
+   * @return the number of beans that have query beans generated
+   */
+  int write() {
+    int count = addSources();
+    render(ctx.getParallelism());
+    for (Source source : sources) {
+      if (source.error != null) {
+        source.error.printStackTrace();
+        ctx.logError(source.element, "Error generating query beans: " + source.error);
+      } else {
+        try {
+          write(source);
+        } catch (Throwable e) {
+          e.printStackTrace();
+          ctx.logError(source.element, "Error generating query beans: " + e);
+        }
+      }
+    }
+    sources.clear();
+    return count;
+  }
+
+  private void render(int parallelism) {
+    final ProcessingStats stats = ctx.getStats();
+    final ProcessingEvents events = ctx.getEvents();
+    final SourceCache cache = ctx.getSourceCache();
+    if (parallelism <= 1 || sources.size() < 2) {
+      sources.forEach(source -> source.render(stats, events, cache, buffers));
+      buffers.clear();
+      return;
+    }
+    ForkJoinPool pool = new ForkJoinPool(parallelism);
+    try {
+      // parallel stream tasks run in the pool they are submitted from
+      pool.submit(() -> sources.parallelStream().forEach(source -> source.render(stats, events, cache, buffers))).get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted rendering query beans", e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Error rendering query beans", e.getCause());
+    } finally {
+      pool.shutdown();
+      buffers.clear();
+    }
+  }
+
+  private void write(Source source) throws IOException {
+    ctx.getGeneratedFiles().writeSource(source.className(), source.content, source.element);
+  }
+
+  /**
+   * A bean model read in the round.
+   */
+  private static class Model {
+
+    private final QueryBeanModel model;
+    private final Element element;
+
+    Model(QueryBeanModel model, Element element) {
+      this.model = model;
+      this.element = element;
+    }
+  }
+
+  /**
+   * A query bean source to render and write.
+   */
+  private static class Source {
+
+    private final QueryBeanModel model;
+    private final Element element;
+    private final boolean assoc;
+    private final String fingerprint;
+
+    private String content;
+    private Throwable error;
+
+    Source(QueryBeanModel model, Element element, boolean assoc, String fingerprint) {
+      this.model = model;
+      this.element = element;
+      this.assoc = assoc;
+      this.fingerprint = fingerprint;
+    }
+
+    String className() {
+      return assoc ? model.assocBeanName() : model.rootBeanName();
+    }
+
+    /**
+     * Render the source or read it from the cache when available.
+     */
+    void render(ProcessingStats stats, ProcessingEvents events, SourceCache cache, Queue<CodeWriter> buffers) {
+      long start = stats.start();
+      ProcessingEvents.File event = events.file();
+      try {
+        String key = (cache == null) ? null : SourceCache.key(fingerprint, assoc);
+        content = (key == null) ? null : cache.get(key);
+        if (content == null) {
+          CodeWriter buffer = buffers.poll();
+          buffer = (buffer == null) ? new CodeWriter() : buffer.reset();
+          SimpleQueryBeanWriter writer = new SimpleQueryBeanWriter(model);
+          content = assoc ? writer.renderAssocBean(buffer) : writer.renderRootBean(buffer);
+          buffers.offer(buffer);
+          if (key != null) {
+            cache.put(key, content);
+          }
+        }
+        event.commit(className(), content);
+      } catch (Throwable e) {
+        error = e;
+      }
+      stats.end(ProcessingStats.Phase.RENDER, start, model.getBeanFullName());
+    }
+  }
+}
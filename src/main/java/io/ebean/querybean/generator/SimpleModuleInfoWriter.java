@@ -1,12 +1,13 @@
 package io.ebean.querybean.generator;
 
-import javax.tools.FileObject;
-import javax.tools.JavaFileObject;
 import java.io.IOException;
-import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.StringJoiner;
 
 /**
  * Write the source code for the factory.
@@ -15,37 +16,61 @@ class SimpleModuleInfoWriter {
 
   private final ProcessingContext processingContext;
 
+  private final GeneratedFiles files;
+
+  private final ModuleEntities module;
+
   private final String factoryPackage;
   private final String factoryShortName;
   private final String factoryFullName;
 
-  private Append writer;
+  private CodeWriter writer;
 
   SimpleModuleInfoWriter(ProcessingContext processingContext) {
     this.processingContext = processingContext;
-    this.factoryPackage = processingContext.getFactoryPackage();
+    this.files = processingContext.getGeneratedFiles();
+    this.module = processingContext.getModuleEntities();
+    this.factoryPackage = module.getFactoryPackage();
     this.factoryShortName = "_ebean$ModuleInfo";
     this.factoryFullName = factoryPackage + "." + factoryShortName;
   }
 
   void write() throws IOException {
-    writer = new Append(createFileWriter());
+    writer = new CodeWriter();
     writePackage();
     writeStartClass();
     writeEndClass();
-    writer.close();
+    // never skipped as the loader must be compiled with the entities of this compile
+    files.createSource(factoryFullName, writer.toString(), module.moduleElements());
     writeServicesFile();
     writeManifestFile();
+    writeStateFile();
+    writeEntityIndex();
+  }
+
+  private void writeEntityIndex() {
+    try {
+      files.writeMetaInf(Constants.METAINF_ENTITY_INDEX, EntityIndex.render(module), module.moduleElements());
+
+    } catch (IOException e) {
+      e.printStackTrace();
+      processingContext.logError(null, "Failed to write entity index " + e.getMessage());
+    }
+  }
+
+  private void writeStateFile() {
+    try {
+      files.writeSidecar(Constants.SOURCE_STATE, ModuleState.render(module), module.moduleElements());
+
+    } catch (IOException e) {
+      e.printStackTrace();
+      processingContext.logError(null, "Failed to write state file " + e.getMessage());
+    }
   }
 
   private void writeServicesFile() {
     try {
-      FileObject jfo = processingContext.createMetaInfServicesWriter();
-      if (jfo != null) {
-        Writer writer = jfo.openWriter();
-        writer.write(factoryFullName);
-        writer.close();
-      }
+      files.writeMetaInf(Constants.METAINF_SERVICES_MODULELOADER, factoryFullName, module.moduleElements());
 
     } catch (IOException e) {
       e.printStackTrace();
@@ -55,16 +80,10 @@ class SimpleModuleInfoWriter {
 
   private void writeManifestFile() {
     try {
-      final Set<String> allEntityPackages = processingContext.getAllEntityPackages();
+      final Set<String> allEntityPackages = module.getAllEntityPackages();
       if (!allEntityPackages.isEmpty()) {
-        FileObject jfo = processingContext.createManifestWriter();
-        if (jfo != null) {
-          Writer writer = jfo.openWriter();
-          writer.write("generated-by: Ebean query bean generator\n");
-          writer.write(manifestEntityPackages(allEntityPackages));
-          writer.write("\n");
-          writer.close();
-        }
+        String content = "generated-by: Ebean query bean generator\n" + manifestEntityPackages(allEntityPackages) + "\n";
+        files.writeMetaInf(Constants.METAINF_MANIFEST, content, module.moduleElements());
       }
 
     } catch (IOException e) {
@@ -84,119 +103,369 @@ class SimpleModuleInfoWriter {
 
   private void writePackage() {
 
-    writer.append("package %s;", factoryPackage).eol().eol();
+    writer.append("package ").append(factoryPackage).append(';').eol().eol();
 
-    writer.append("import java.util.ArrayList;").eol();
-    writer.append("import java.util.Collections;").eol();
-    writer.append("import java.util.List;").eol();
+    writer.line(0, "import java.util.Arrays;");
+    writer.line(0, "import java.util.Collections;");
+    writer.line(0, "import java.util.List;");
     final String generated = processingContext.getGeneratedAnnotation();
     if (generated != null) {
-      writer.append("import %s;", generated).eol();
+      writer.append("import ").append(generated).append(';').eol();
     }
     writer.eol();
-    writer.append("import io.ebean.config.ModuleInfo;").eol();
-    writer.append("import io.ebean.config.ModuleInfoLoader;").eol();
+    writer.line(0, "import io.ebean.config.ModuleInfo;");
+    writer.line(0, "import io.ebean.config.ModuleInfoLoader;");
     writer.eol();
   }
 
-  void buildAtContextModule(Append writer) {
+  void buildAtContextModule(CodeWriter writer, Collection<String> prefixEntities) {
     if (processingContext.isGeneratedAvailable()) {
-      writer.append(Constants.AT_GENERATED).eol();
+      writer.line(0, Constants.AT_GENERATED);
     }
     writer.append("@ModuleInfo(");
-    if (processingContext.hasOtherClasses()) {
-      writer.append("other={%s}, ", otherClasses());
+    if (module.hasOtherClasses()) {
+      writer.append("other={");
+      quoteTypes(writer, module.getOtherClasses());
+      writer.append("}, ");
     }
-    writer.append("entities={%s}", prefixEntities());
-    writer.append(")").eol();
-  }
-
-  private String otherClasses() {
-    return quoteTypes(processingContext.getOtherClasses());
-  }
-
-  private String prefixEntities() {
-    return quoteTypes(processingContext.getPrefixEntities());
+    writer.append("entities={");
+    quoteTypes(writer, prefixEntities);
+    writer.append('}');
+    writer.append(')').eol();
   }
 
-  private String quoteTypes(Set<String> otherClasses) {
-    StringJoiner sb = new StringJoiner(",");
-    for (String fullType : otherClasses) {
-      sb.add("\"" + fullType + "\"");
+  private void quoteTypes(CodeWriter writer, Collection<String> types) {
+    boolean first = true;
+    for (String fullType : types) {
+      if (!first) {
+        writer.append(',');
+      }
+      writer.append('"').append(fullType).append('"');
+      first = false;
     }
-    return sb.toString();
   }
 
   private void writeStartClass() {
 
-    buildAtContextModule(writer);
+    final Map<String, Set<String>> otherDbEntities = module.getOtherDbEntities();
+    final List<String> dbNames = new ArrayList<>(otherDbEntities.keySet());
+    final int shardSize = processingContext.getShardSize();
+    final boolean sharded = shardSize > 0 && module.getPrefixEntities().size() > shardSize;
+    final boolean names = processingContext.isNames();
+
+    buildAtContextModule(writer, sharded ? Collections.emptyList() : module.getPrefixEntities());
+    writer.append("public class ").append(factoryShortName).append(" implements ModuleInfoLoader {").eol().eol();
+    if (sharded) {
+      Map<String, List<Shard>> dbShards = dbShards(otherDbEntities, shardSize);
+      writeShards(dbShards);
+      if (names) {
+        writeNameShards(dbShards);
+      }
+    } else {
+      writeClassesHolders(otherDbEntities);
+      if (names) {
+        writeNamesHolder(otherDbEntities);
+      }
+    }
+    writeJoinMethod("Class<?>", "list");
+    if (names) {
+      writeJoinMethod("String", "names");
+    }
+    writeMethodEntityClasses();
+    writeMethodEntityClassesFor(dbNames);
+    if (names) {
+      writeMethodNames(dbNames);
+    }
+  }
 
-    writer.append("public class %s implements ModuleInfoLoader {", factoryShortName).eol().eol();
-    writeMethodOtherClasses();
-    writeMethodEntityClasses(processingContext.getDbEntities(), null);
+  /**
+   * Return the name of the holder of the entity classes of a database.
+   * <p>
+   * Each database has its own holder such that only the entity classes of
+   * the requested database are loaded.
+   * </p>
+   *
+   * @param db the index of the database, 0 for the default database
+   */
+  private static String classesHolder(int db) {
+    return db == 0 ? "Classes" : "Classes" + db;
+  }
 
-    final Map<String, Set<String>> otherDbEntities = processingContext.getOtherDbEntities();
-    writeMethodEntityClassesFor(otherDbEntities.keySet());
+  /**
+   * Return the name of the field holding the entity class names of the database.
+   * <p>
+   * Keyed by index as database names are not necessarily valid Java identifiers.
+   * </p>
+   *
+   * @param db the index of the database, 0 for the default database
+   */
+  private static String namesField(int db) {
+    return db == 0 ? "entities" : "entities" + db;
+  }
 
+  /**
+   * Return the entities of each database (default database first) split into shards of at most shardSize.
+   */
+  private Map<String, List<Shard>> dbShards(Map<String, Set<String>> otherDbEntities, int shardSize) {
+    Map<String, List<Shard>> dbShards = new LinkedHashMap<>();
+    dbShards.put(null, shards(null, module.getDbEntities(), shardSize));
     for (Map.Entry<String, Set<String>> otherDb : otherDbEntities.entrySet()) {
-      writeMethodEntityClasses(otherDb.getValue(), otherDb.getKey());
+      dbShards.put(otherDb.getKey(), shards(otherDb.getKey(), otherDb.getValue(), shardSize));
     }
+    return dbShards;
   }
 
-  private void writeMethodOtherClasses() {
-    writer.append("  private List<Class<?>> otherClasses() {").eol();
-    if (!processingContext.hasOtherClasses()) {
-      writer.append("    return Collections.emptyList();").eol();
-    } else {
-      writer.append("    List<Class<?>> others = new ArrayList<>();").eol();
-      for (String otherType : processingContext.getOtherClasses()) {
-        writer.append("    others.add(%s.class);", otherType).eol();
+  private List<Shard> shards(String dbName, Set<String> entities, int shardSize) {
+    List<Shard> shards = new ArrayList<>();
+    Shard shard = null;
+    for (String entity : entities) {
+      if (shard == null || shard.entities.size() == shardSize) {
+        shard = new Shard(dbName, shardSize);
+        shards.add(shard);
+      }
+      shard.entities.add(entity);
+    }
+    return shards;
+  }
+
+  /**
+   * Write the entities in shards of at most shardSize entities of a single database.
+   * <p>
+   * Each shard is a nested class (with its own constant pool and static initialiser) with
+   * a ModuleInfo annotation listing its entities, read back for partial compile.
+   * </p>
+   */
+  private void writeShards(Map<String, List<Shard>> dbShards) {
+    int shardCount = 0;
+    for (List<Shard> shards : dbShards.values()) {
+      for (Shard shard : shards) {
+        writeShard(shard, shardCount++);
+      }
+    }
+    writer.line(1, "private static final class Others {");
+    writer.line(2, "static final Class<?>[] classes = {");
+    for (String otherType : module.getOtherClasses()) {
+      writer.indent(3).append(otherType).append(".class,").eol();
+    }
+    writer.line(2, "};");
+    writer.line(1, "}").eol();
+
+    int db = 0;
+    shardCount = 0;
+    for (List<Shard> shards : dbShards.values()) {
+      writer.indent(1).append("private static final class ").append(classesHolder(db++)).append(" {").eol();
+      writer.indent(2).append("static final List<Class<?>> entities = list(");
+      for (int i = 0; i < shards.size(); i++) {
+        writer.append("Shard").append(shardCount++).append(".classes, ");
       }
-      writer.append("    return others;").eol();
+      writer.append("Others.classes);").eol();
+      writer.line(1, "}").eol();
     }
-    writer.append("  }").eol().eol();
   }
 
-  private void writeMethodEntityClasses(Set<String> dbEntities, String dbName) {
+  private void writeShard(Shard shard, int index) {
+    writer.indent(1).append("@ModuleInfo(entities={");
+    quoteTypes(writer, shard.prefixEntities());
+    writer.append("})").eol();
+    writer.indent(1).append("private static final class Shard").append(index).append(" {").eol();
+    writer.line(2, "static final Class<?>[] classes = {");
+    for (String entity : shard.entities) {
+      writer.indent(3).append(entity).append(".class,").eol();
+    }
+    writer.line(2, "};");
+    writer.line(1, "}").eol();
+  }
 
-    String modifier = "public";
-    String method = "entityClasses";
+  /**
+   * Write the entity class names of each shard in separate nested classes (that do not load the entity classes).
+   */
+  private void writeNameShards(Map<String, List<Shard>> dbShards) {
+    int shardCount = 0;
+    for (List<Shard> shards : dbShards.values()) {
+      for (Shard shard : shards) {
+        writer.indent(1).append("private static final class Shard").append(shardCount++).append("Names {").eol();
+        writer.line(2, "static final String[] names = {");
+        for (String entity : shard.entities) {
+          writer.indent(3).append('"').append(entity).append("\",").eol();
+        }
+        writer.line(2, "};");
+        writer.line(1, "}").eol();
+      }
+    }
+    writer.line(1, "private static final class Names {").eol();
+    writeOtherNames();
+    shardCount = 0;
+    int db = 0;
+    for (List<Shard> shards : dbShards.values()) {
+      writer.indent(2).append("static final List<String> ").append(namesField(db++)).append(" = names(");
+      for (int i = 0; i < shards.size(); i++) {
+        writer.append(i == 0 ? "" : ", ").append("Shard").append(shardCount++).append("Names.names");
+      }
+      writer.append(");").eol().eol();
+    }
+    writer.line(1, "}").eol();
+  }
 
-    if (dbName == null) {
-      writer.append("  @Override").eol();
-    } else {
-      method = dbName + "_entities";
-      modifier = "private";
+  /**
+   * Write the method joining arrays into an unmodifiable list.
+   */
+  private void writeJoinMethod(String type, String method) {
+    String arrayType = type + "[]";
+    writer.indent(1).append("private static List<").append(type).append("> ").append(method).append("(").append(arrayType).append("... parts) {").eol();
+    writer.line(2, "int size = 0;");
+    writer.indent(2).append("for (").append(arrayType).append(" part : parts) {").eol();
+    writer.line(3, "size += part.length;");
+    writer.line(2, "}");
+    writer.indent(2).append(arrayType).append(" all = new ").append(type).append("[size];").eol();
+    writer.line(2, "int pos = 0;");
+    writer.indent(2).append("for (").append(arrayType).append(" part : parts) {").eol();
+    writer.line(3, "System.arraycopy(part, 0, all, pos, part.length);");
+    writer.line(3, "pos += part.length;");
+    writer.line(2, "}");
+    writer.line(2, "return Collections.unmodifiableList(Arrays.asList(all));");
+    writer.line(1, "}").eol();
+  }
+
+  /**
+   * Write a holder per database of the entity class lists that are built once (on first use).
+   */
+  private void writeClassesHolders(Map<String, Set<String>> otherDbEntities) {
+    int db = 0;
+    writeClassesHolder(db++, module.getDbEntities());
+    for (Set<String> entities : otherDbEntities.values()) {
+      writeClassesHolder(db++, entities);
     }
-    writer.append("  %s List<Class<?>> %s() {", modifier, method).eol();
-    writer.append("    List<Class<?>> entities = new ArrayList<>();").eol();
+  }
+
+  /**
+   * Write the holder with the static final list of the entity classes plus the other classes.
+   */
+  private void writeClassesHolder(int db, Set<String> dbEntities) {
+    writer.indent(1).append("private static final class ").append(classesHolder(db)).append(" {").eol();
+    writer.line(2, "static final List<Class<?>> entities = list(new Class<?>[]{");
     for (String dbEntity : dbEntities) {
-      writer.append("    entities.add(%s.class);", dbEntity).eol();
+      writer.indent(3).append(dbEntity).append(".class,").eol();
+    }
+    for (String otherType : module.getOtherClasses()) {
+      writer.indent(3).append(otherType).append(".class,").eol();
+    }
+    writer.line(2, "});");
+    writer.line(1, "}").eol();
+  }
+
+  /**
+   * Write the holder of the entity and other class names (that does not load the classes).
+   */
+  private void writeNamesHolder(Map<String, Set<String>> otherDbEntities) {
+    writer.line(1, "private static final class Names {").eol();
+    writeOtherNames();
+    int db = 0;
+    writeNamesList(namesField(db++), module.getDbEntities());
+    for (Set<String> entities : otherDbEntities.values()) {
+      writeNamesList(namesField(db++), entities);
     }
-    if (processingContext.hasOtherClasses()) {
-      writer.append("    entities.addAll(otherClasses());").eol();
+    writer.line(1, "}").eol();
+  }
+
+  private void writeOtherNames() {
+    writeNamesList("others", module.getOtherClasses());
+  }
+
+  private void writeNamesList(String field, Set<String> classNames) {
+    writer.indent(2).append("static final List<String> ").append(field).append(" = names(new String[]{").eol();
+    for (String className : classNames) {
+      writer.indent(3).append('"').append(className).append("\",").eol();
+    }
+    writer.line(2, "});").eol();
+  }
+
+  /**
+   * Write the methods returning the class names (without loading the classes).
+   */
+  private void writeMethodNames(List<String> dbNames) {
+    writer.line(1, "public List<String> entityClassNames() {");
+    writer.line(2, "return Names.entities;");
+    writer.line(1, "}").eol();
+    writer.line(1, "public List<String> entityClassNamesFor(String dbName) {");
+    List<String> targets = new ArrayList<>(dbNames.size());
+    for (int i = 0; i < dbNames.size(); i++) {
+      targets.add("Names." + namesField(i + 1));
     }
-    writer.append("    return entities;").eol();
-    writer.append("  }").eol().eol();
+    writeSwitchDbName(dbNames, targets);
+    writer.line(1, "}").eol();
+    writer.line(1, "public List<String> otherClassNames() {");
+    writer.line(2, "return Names.others;");
+    writer.line(1, "}").eol();
   }
 
-  private void writeMethodEntityClassesFor(Set<String> otherDbNames) {
+  private void writeMethodEntityClasses() {
+    writer.line(1, "@Override");
+    writer.line(1, "public List<Class<?>> entityClasses() {");
+    writer.indent(2).append("return ").append(classesHolder(0)).append(".entities;").eol();
+    writer.line(1, "}").eol();
+  }
 
-    writer.append("  @Override").eol();
-    writer.append("  public List<Class<?>> entityClassesFor(String dbName) {").eol().eol();
-    for (String dbName : otherDbNames) {
-      writer.append("    if (\"%s\".equals(dbName)) return %s_entities();", dbName, dbName).eol();
+  private void writeMethodEntityClassesFor(List<String> dbNames) {
+    writer.line(1, "@Override");
+    writer.line(1, "public List<Class<?>> entityClassesFor(String dbName) {");
+    List<String> targets = new ArrayList<>(dbNames.size());
+    for (int i = 0; i < dbNames.size(); i++) {
+      targets.add(classesHolder(i + 1) + ".entities");
     }
-    writer.append("    return Collections.emptyList();").eol();
-    writer.append("  }").eol().eol();
+    writeSwitchDbName(dbNames, targets);
+    writer.line(1, "}").eol();
+  }
+
+  /**
+   * Write a string switch on dbName returning the target for each database.
+   */
+  private void writeSwitchDbName(List<String> dbNames, List<String> targets) {
+    if (dbNames.isEmpty()) {
+      writer.line(2, "return Collections.emptyList();");
+      return;
+    }
+    writer.line(2, "if (dbName == null) {");
+    writer.line(3, "return Collections.emptyList();");
+    writer.line(2, "}");
+    writer.line(2, "switch (dbName) {");
+    for (int i = 0; i < dbNames.size(); i++) {
+      writer.indent(3).append("case \"").append(dbNames.get(i)).append("\":").eol();
+      writer.indent(4).append("return ").append(targets.get(i)).append(';').eol();
+    }
+    writer.line(3, "default:");
+    writer.line(4, "return Collections.emptyList();");
+    writer.line(2, "}");
   }
 
   private void writeEndClass() {
-    writer.append("}").eol();
+    writer.line(0, "}");
   }
 
-  private Writer createFileWriter() throws IOException {
-    JavaFileObject jfo = processingContext.createWriter(factoryFullName);
-    return jfo.openWriter();
+  /**
+   * The entities of a shard of a single database.
+   */
+  private static class Shard {
+
+    private final String dbName;
+    private final List<String> entities;
+
+    Shard(String dbName, int shardSize) {
+      this.dbName = dbName;
+      this.entities = new ArrayList<>(shardSize);
+    }
+
+    /**
+     * Return the entities prefixed by dbName (as per the ModuleInfo annotation).
+     */
+    List<String> prefixEntities() {
+      if (dbName == null) {
+        return entities;
+      }
+      List<String> prefixEntities = new ArrayList<>(entities.size());
+      for (String entity : entities) {
+        prefixEntities.add(dbName + ":" + entity);
+      }
+      return prefixEntities;
+    }
   }
 }
@@ -1,34 +1,29 @@
 package io.ebean.querybean.generator;
 
 
-import javax.lang.model.element.TypeElement;
-import javax.lang.model.element.VariableElement;
-import javax.tools.JavaFileObject;
-import java.io.IOException;
-import java.io.Writer;
-import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
 
 /**
- * A simple implementation that generates and writes query beans.
+ * A simple implementation that renders the source of query beans.
+ * <p>
+ * Rendering uses only the QueryBeanModel such that it can occur off the processor thread.
+ * Use a new instance to render each query bean.
+ * </p>
  */
 class SimpleQueryBeanWriter {
 
-  private final Set<String> importTypes = new TreeSet<>();
+  private final Set<String> importTypes;
 
-  private final List<PropertyMeta> properties = new ArrayList<>();
+  private final List<PropertyMeta> properties;
 
-  private final TypeElement element;
-
-  private final ProcessingContext processingContext;
+  private final QueryBeanModel model;
 
   private final String dbName;
-  private final String beanFullName;
   private final boolean isEntity;
-  private final boolean embeddable;
+  private final boolean compact;
   private boolean writingAssocBean;
 
   private String destPackage;
@@ -36,95 +31,48 @@ class SimpleQueryBeanWriter {
 
   private String shortName;
   private String origShortName;
-  private Append writer;
-
-  SimpleQueryBeanWriter(TypeElement element, ProcessingContext processingContext) {
-    this.element = element;
-    this.processingContext = processingContext;
-    this.beanFullName = element.getQualifiedName().toString();
-    this.destPackage = derivePackage(beanFullName) + ".query";
-    this.shortName = deriveShortName(beanFullName);
-    this.isEntity = processingContext.isEntity(element);
-    this.embeddable = processingContext.isEmbeddable(element);
-    this.dbName = findDbName();
-  }
-
-  private String findDbName() {
-    return processingContext.findDbName(element);
+  private CodeWriter writer;
+
+  SimpleQueryBeanWriter(QueryBeanModel model) {
+    this.model = model;
+    this.importTypes = new TreeSet<>(model.getImportTypes());
+    this.properties = model.getProperties();
+    this.destPackage = model.getPackageName() + ".query";
+    this.shortName = model.getShortName();
+    this.isEntity = model.isEntity();
+    this.dbName = model.getDbName();
+    this.compact = model.isCompact();
   }
 
   private boolean isEntity() {
     return isEntity;
   }
 
-  private boolean isEmbeddable() {
-    return embeddable;
-  }
-
-  private void gatherPropertyDetails() {
-    final String generated = processingContext.getGeneratedAnnotation();
-    if (generated != null) {
-      importTypes.add(generated);
-    }
-    importTypes.add(beanFullName);
-    importTypes.add(Constants.TQROOTBEAN);
-    importTypes.add(Constants.TYPEQUERYBEAN);
-    importTypes.add(Constants.DATABASE);
-    importTypes.add(Constants.FETCHGROUP);
-    importTypes.add(Constants.QUERY);
-    importTypes.add(Constants.TRANSACTION);
-
-    if (dbName != null) {
-      importTypes.add(Constants.DB);
-    }
-    addClassProperties();
-  }
-
   /**
-   * Recursively add properties from the inheritance hierarchy.
-   * <p>
-   * Includes properties from mapped super classes and usual inheritance.
-   * </p>
+   * Render the source of the type query bean (root bean).
    */
-  private void addClassProperties() {
-    for (VariableElement field : processingContext.allFields(element)) {
-      PropertyType type = processingContext.getPropertyType(field);
-      if (type != null) {
-        type.addImports(importTypes);
-        properties.add(new PropertyMeta(field.getSimpleName().toString(), type));
-      }
-    }
-  }
+  String renderRootBean(CodeWriter writer) {
+    this.writer = writer;
 
-  /**
-   * Write the type query bean (root bean).
-   */
-  void writeRootBean() throws IOException {
-
-    gatherPropertyDetails();
-    if (isEmbeddable()) {
-      processingContext.addEntity(beanFullName, dbName);
-    } else if (isEntity()) {
-      processingContext.addEntity(beanFullName, dbName);
-      writer = new Append(createFileWriter());
-
-      writePackage();
-      writeImports();
-      writeClass();
-      writeAlias();
-      writeFields();
-      writeConstructors();
+    writePackage();
+    writeImports();
+    writeClass();
+    writeAlias();
+    writeFields();
+    writeConstructors();
+    if (model.isAlias()) {
       writeStaticAliasClass();
-      writeClassEnd();
-
-      writer.close();
     }
+    writeClassEnd();
+
+    return writer.toString();
   }
 
   /**
-   * Write the type query assoc bean.
+   * Render the source of the type query assoc bean.
    */
-  void writeAssocBean() throws IOException {
+  String renderAssocBean(CodeWriter writer) {
+    this.writer = writer;
     writingAssocBean = true;
     origDestPackage = destPackage;
     destPackage = destPackage + ".assoc";
@@ -133,8 +81,6 @@ class SimpleQueryBeanWriter {
 
     prepareAssocBeanImports();
 
-    writer = new Append(createFileWriter());
-
     writePackage();
     writeImports();
     writeClass();
@@ -142,7 +88,7 @@ class SimpleQueryBeanWriter {
     writeConstructors();
     writeClassEnd();
 
-    writer.close();
+    return writer.toString();
   }
 
   /**
@@ -189,62 +135,51 @@ class SimpleQueryBeanWriter {
   private void writeRootBeanConstructor() {
 
     writer.eol();
-    writer.append("  /**").eol();
-    writer.append("   * Return a query bean used to build a FetchGroup.").eol();
-    writer.append("   */").eol();
-    writer.append("  public static Q%s forFetchGroup() {", shortName).eol();
-    writer.append("    return new Q%s(FetchGroup.queryFor(%s.class));", shortName, shortName).eol();
-    writer.append("  }").eol();
+    writeJavadoc(1, "Return a query bean used to build a FetchGroup.");
+    writer.indent(1).append("public static Q").append(shortName).append(" forFetchGroup() {").eol();
+    writer.indent(2).append("return new Q").append(shortName).append("(FetchGroup.queryFor(").append(shortName).append(".class));").eol();
+    writer.line(1, "}");
     writer.eol();
 
     String name = (dbName == null) ? "default" : dbName;
-    writer.append("  /**").eol();
-    writer.append("   * Construct using the %s Database.", name).eol();
-    writer.append("   */").eol();
-    writer.append("  public Q%s() {", shortName).eol();
-    if (dbName == null) {
-      writer.append("    super(%s.class);", shortName).eol();
-    } else {
-      writer.append("    super(%s.class, DB.byName(\"%s\"));", shortName, dbName).eol();
-    }
-    writer.append("  }").eol();
+    writeConstructor("Construct using the " + name + " Database.", "public", "", superArgs(null));
     writer.eol();
 
-    writer.append("  /**").eol();
-    writer.append("   * Construct with a given transaction.", name).eol();
-    writer.append("   */").eol();
-    writer.append("  public Q%s(Transaction transaction) {", shortName).eol();
-    if (dbName == null) {
-      writer.append("    super(%s.class, transaction);", shortName).eol();
-    } else {
-      writer.append("    super(%s.class, DB.byName(\"%s\"), transaction);", shortName, dbName).eol();
-    }
-    writer.append("  }").eol();
+    writeConstructor("Construct with a given transaction.", "public", "Transaction transaction", superArgs("transaction"));
 
     writer.eol();
-    writer.append("  /**").eol();
-    writer.append("   * Construct with a given Database.").eol();
-    writer.append("   */").eol();
-    writer.append("  public Q%s(Database database) {", shortName).eol();
-    writer.append("    super(%s.class, database);", shortName).eol();
-    writer.append("  }").eol();
+    writeConstructor("Construct with a given Database.", "public", "Database database", shortName + ".class, database");
     writer.eol();
 
     writer.eol();
-    writer.append("  /**").eol();
-    writer.append("   * Construct for Alias.").eol();
-    writer.append("   */").eol();
-    writer.append("  private Q%s(boolean dummy) {", shortName).eol();
-    writer.append("    super(dummy);").eol();
-    writer.append("  }").eol();
+    writeConstructor("Construct for Alias.", "private", "boolean dummy", "dummy");
 
     writer.eol();
-    writer.append("  /**").eol();
-    writer.append("   * Private constructor for FetchGroup building.").eol();
-    writer.append("   */").eol();
-    writer.append("  private Q%s(Query<%s> fetchGroupQuery) {", shortName, shortName).eol();
-    writer.append("    super(fetchGroupQuery);").eol();
-    writer.append("  }").eol();
+    writeConstructor("Private constructor for FetchGroup building.", "private", "Query<" + shortName + "> fetchGroupQuery", "fetchGroupQuery");
+  }
+
+  /**
+   * Write a root bean constructor that calls the super constructor with the given arguments.
+   */
+  private void writeConstructor(String javadoc, String modifier, String params, String superArgs) {
+    writeJavadoc(1, javadoc);
+    writer.indent(1).append(modifier).append(" Q").append(shortName).append("(").append(params).append(") {").eol();
+    writer.indent(2).append("super(").append(superArgs).append(");").eol();
+    writer.line(1, "}");
+  }
+
+  /**
+   * Return the super constructor arguments, the bean type, the database when not the default and the given argument.
+   */
+  private String superArgs(String arg) {
+    StringBuilder sb = new StringBuilder(64).append(shortName).append(".class");
+    if (dbName != null) {
+      sb.append(", DB.byName(\"").append(dbName).append("\")");
+    }
+    if (arg != null) {
+      sb.append(", ").append(arg);
+    }
+    return sb.toString();
   }
 
   private void writeAssocBeanFetch() {
@@ -257,13 +192,11 @@ class SimpleQueryBeanWriter {
   }
 
   private void writeAssocBeanFetch(String fetchType, String comment) {
-    writer.append("  /**").eol();
-    writer.append("   * ").append(comment).eol();
-    writer.append("   */").eol();
-    writer.append("  @SafeVarargs @SuppressWarnings(\"varargs\")").eol();
-    writer.append("  public final R fetch%s(TQProperty<Q%s>... properties) {", fetchType, origShortName).eol();
-    writer.append("    return fetch%sProperties(properties);", fetchType).eol();
-    writer.append("  }").eol();
+    writeJavadoc(1, comment);
+    writer.line(1, "@SafeVarargs @SuppressWarnings(\"varargs\")");
+    writer.indent(1).append("public final R fetch").append(fetchType).append("(TQProperty<Q").append(origShortName).append(">... properties) {").eol();
+    writer.indent(2).append("return fetch").append(fetchType).append("Properties(properties);").eol();
+    writer.line(1, "}");
     writer.eol();
   }
 
@@ -271,13 +204,13 @@ class SimpleQueryBeanWriter {
    * Write constructor for 'assoc' type query bean.
    */
   private void writeAssocBeanConstructor() {
-    writer.append("  public Q%s(String name, R root) {", shortName).eol();
-    writer.append("    super(name, root);").eol();
-    writer.append("  }").eol().eol();
+    writer.indent(1).append("public Q").append(shortName).append("(String name, R root) {").eol();
+    writer.line(2, "super(name, root);");
+    writer.line(1, "}").eol();
 
-    writer.append("  public Q%s(String name, R root, String prefix) {", shortName).eol();
-    writer.append("    super(name, root, prefix);").eol();
-    writer.append("  }").eol();
+    writer.indent(1).append("public Q").append(shortName).append("(String name, R root, String prefix) {").eol();
+    writer.line(2, "super(name, root, prefix);");
+    writer.line(1, "}");
   }
 
   /**
@@ -296,28 +229,20 @@ class SimpleQueryBeanWriter {
    */
   private void writeClass() {
     if (writingAssocBean) {
-      writer.append("/**").eol();
-      writer.append(" * Association query bean for %s.", shortName).eol();
-      writer.append(" * ").eol();
-      writer.append(" * THIS IS A GENERATED OBJECT, DO NOT MODIFY THIS CLASS.").eol();
-      writer.append(" */").eol();
-      if (processingContext.isGeneratedAvailable()) {
-        writer.append(Constants.AT_GENERATED).eol();
+      writeJavadoc(0, "Association query bean for " + shortName + ".", "", "THIS IS A GENERATED OBJECT, DO NOT MODIFY THIS CLASS.");
+      if (model.isGeneratedAvailable()) {
+        writer.line(0, Constants.AT_GENERATED);
       }
-      writer.append(Constants.AT_TYPEQUERYBEAN).eol();
-      writer.append("public class Q%s<R> extends TQAssocBean<%s,R> {", shortName, origShortName).eol();
+      writer.line(0, Constants.AT_TYPEQUERYBEAN);
+      writer.append("public class Q").append(shortName).append("<R> extends TQAssocBean<").append(origShortName).append(",R> {").eol();
 
     } else {
-      writer.append("/**").eol();
-      writer.append(" * Query bean for %s.", shortName).eol();
-      writer.append(" * ").eol();
-      writer.append(" * THIS IS A GENERATED OBJECT, DO NOT MODIFY THIS CLASS.").eol();
-      writer.append(" */").eol();
-      if (processingContext.isGeneratedAvailable()) {
-        writer.append(Constants.AT_GENERATED).eol();
+      writeJavadoc(0, "Query bean for " + shortName + ".", "", "THIS IS A GENERATED OBJECT, DO NOT MODIFY THIS CLASS.");
+      if (model.isGeneratedAvailable()) {
+        writer.line(0, Constants.AT_GENERATED);
       }
-      writer.append(Constants.AT_TYPEQUERYBEAN).eol();
-      writer.append("public class Q%s extends TQRootBean<%1$s,Q%1$s> {", shortName).eol();
+      writer.line(0, Constants.AT_TYPEQUERYBEAN);
+      writer.append("public class Q").append(shortName).append(" extends TQRootBean<").append(shortName).append(",Q").append(shortName).append("> {").eol();
     }
 
     writer.eol();
@@ -325,35 +250,42 @@ class SimpleQueryBeanWriter {
 
   private void writeAlias() {
     if (!writingAssocBean) {
-      writer.append("  private static final Q%s _alias = new Q%1$s(true);", shortName).eol().eol();
-
-      writer.append("  /**").eol();
-      writer.append("   * Return the shared 'Alias' instance used to provide properties to ").eol();
-      writer.append("   * <code>select()</code> and <code>fetch()</code> ").eol();
-      writer.append("   */").eol();
-      writer.append("  public static Q%s alias() {", shortName).eol();
-      writer.append("    return _alias;").eol();
-      writer.append("  }").eol();
+      writer.indent(1).append("private static final Q").append(shortName).append(" _alias = new Q").append(shortName).append("(true);").eol().eol();
+
+      writeJavadoc(1, "Return the shared 'Alias' instance used to provide properties to ", "<code>select()</code> and <code>fetch()</code> ");
+      writer.indent(1).append("public static Q").append(shortName).append(" alias() {").eol();
+      writer.line(2, "return _alias;");
+      writer.line(1, "}");
       writer.eol();
     }
   }
 
   private void writeStaticAliasClass() {
     writer.eol();
-    writer.append("  /**").eol();
-    writer.append("   * Provides static properties to use in <em> select() and fetch() </em>").eol();
-    writer.append("   * clauses of a query. Typically referenced via static imports. ").eol();
-    writer.append("   */").eol();
-    writer.append("  public static class Alias {").eol();
+    writeJavadoc(1, "Provides static properties to use in <em> select() and fetch() </em>", "clauses of a query. Typically referenced via static imports. ");
+    writer.line(1, "public static class Alias {");
     for (PropertyMeta property : properties) {
       property.writeFieldAliasDefn(writer, shortName);
       writer.eol();
     }
-    writer.append("  }").eol();
+    writer.line(1, "}");
+  }
+
+  /**
+   * Write the Javadoc comment (unless compact).
+   */
+  private void writeJavadoc(int indent, String... lines) {
+    if (!compact) {
+      writer.line(indent, "/**");
+      for (String line : lines) {
+        writer.indent(indent).append(" * ").append(line).eol();
+      }
+      writer.line(indent, " */");
+    }
   }
 
   private void writeClassEnd() {
-    writer.append("}").eol();
+    writer.line(0, "}");
   }
 
   /**
@@ -362,34 +294,12 @@ class SimpleQueryBeanWriter {
   private void writeImports() {
 
     for (String importType : importTypes) {
-      writer.append("import %s;", importType).eol();
+      writer.append("import ").append(importType).append(';').eol();
     }
     writer.eol();
   }
 
   private void writePackage() {
-    writer.append("package %s;", destPackage).eol().eol();
-  }
-
-
-  private Writer createFileWriter() throws IOException {
-    JavaFileObject jfo = processingContext.createWriter(destPackage + "." + "Q" + shortName, element);
-    return jfo.openWriter();
-  }
-
-  private String derivePackage(String name) {
-    int pos = name.lastIndexOf('.');
-    if (pos == -1) {
-      return "";
-    }
-    return name.substring(0, pos);
-  }
-
-  private String deriveShortName(String name) {
-    int pos = name.lastIndexOf('.');
-    if (pos == -1) {
-      return name;
-    }
-    return name.substring(pos + 1);
+    writer.append("package ").append(destPackage).append(';').eol().eol();
   }
 }
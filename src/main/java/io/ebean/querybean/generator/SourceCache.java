@@ -0,0 +1,187 @@
+package io.ebean.querybean.generator;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Content addressed cache of rendered query bean sources in a local (or shared) directory.
+ * <p>
+ * Entries are keyed by the hash of the query bean model fingerprint (which includes the
+ * generator version and a hash of the generator classes) and the kind of query bean, so an
+ * entry never needs invalidation.
+ * Entries are written atomically via a temporary file and rename such that concurrent
+ * builds sharing the directory never read a partial entry. The last modified time of an
+ * entry is updated on each hit and the least recently used entries are evicted when the
+ * total size exceeds the maximum.
+ * </p>
+ * <p>
+ * Errors are treated as cache misses, a read only or unavailable directory never fails the build.
+ * Methods can be called from the render threads.
+ * </p>
+ */
+class SourceCache {
+
+  private static final String SUFFIX = ".java";
+
+  private final Path dir;
+
+  private final long maxBytes;
+
+  private final LongAdder hits = new LongAdder();
+
+  private final LongAdder misses = new LongAdder();
+
+  private int evicted;
+
+  SourceCache(Path dir, long maxBytes) {
+    this.dir = dir;
+    this.maxBytes = maxBytes;
+  }
+
+  /**
+   * Return the cache key of the root or assoc query bean given the model fingerprint.
+   */
+  static String key(String fingerprint, boolean assoc) {
+    return ContentHash.sha256(fingerprint + (assoc ? ":assoc" : ":root"));
+  }
+
+  private Path path(String key) {
+    return dir.resolve(key.substring(0, 2)).resolve(key + SUFFIX);
+  }
+
+  /**
+   * Return the cached source or null if it is not in the cache.
+   */
+  String get(String key) {
+    Path path = path(key);
+    try {
+      String content = new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+      touch(path);
+      hits.increment();
+      return content;
+    } catch (IOException e) {
+      misses.increment();
+      return null;
+    }
+  }
+
+  private static void touch(Path path) {
+    try {
+      Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+    } catch (IOException e) {
+      // ignore - read only cache
+    }
+  }
+
+  /**
+   * Add the source to the cache (atomically).
+   */
+  void put(String key, String content) {
+    Path path = path(key);
+    try {
+      Files.createDirectories(path.getParent());
+      Path tmp = Files.createTempFile(path.getParent(), key, ".tmp");
+      try {
+        Files.write(tmp, content.getBytes(StandardCharsets.UTF_8));
+        try {
+          Files.move(tmp, path, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+          Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+      } finally {
+        Files.deleteIfExists(tmp);
+      }
+    } catch (IOException e) {
+      // ignore - read only or unavailable cache
+    }
+  }
+
+  /**
+   * Evict the least recently used entries when the total size exceeds the maximum.
+   * <p>
+   * The size and last modified time of the entries are read once before sorting as
+   * concurrent builds can touch or remove entries at any time.
+   * </p>
+   *
+   * @throws IOException when the cache directory can not be read
+   */
+  void evict() throws IOException {
+    if (!Files.isDirectory(dir)) {
+      return;
+    }
+    List<Entry> entries = new ArrayList<>();
+    long totalBytes = 0;
+    try (Stream<Path> paths = Files.walk(dir)) {
+      for (Path path : (Iterable<Path>) paths.filter(Files::isRegularFile)::iterator) {
+        Entry entry = Entry.of(path);
+        if (entry != null) {
+          entries.add(entry);
+          totalBytes += entry.size;
+        }
+      }
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+    if (totalBytes <= maxBytes) {
+      return;
+    }
+    entries.sort((e1, e2) -> Long.compare(e1.lastModified, e2.lastModified));
+    for (Entry entry : entries) {
+      if (totalBytes <= maxBytes) {
+        break;
+      }
+      try {
+        if (Files.deleteIfExists(entry.path)) {
+          evicted++;
+        }
+        totalBytes -= entry.size;
+      } catch (IOException e) {
+        // ignore - removed by a concurrent build or read only cache
+      }
+    }
+  }
+
+  /**
+   * Return a summary of the cache hits, misses and evictions (for logging).
+   */
+  String summary() {
+    return "source cache " + dir + " hits " + hits.sum() + ", misses " + misses.sum() + ", evicted " + evicted;
+  }
+
+  /**
+   * A cache entry with its size and last modified time at the time it was listed.
+   */
+  private static class Entry {
+
+    private final Path path;
+    private final long size;
+    private final long lastModified;
+
+    private Entry(Path path, long size, long lastModified) {
+      this.path = path;
+      this.size = size;
+      this.lastModified = lastModified;
+    }
+
+    /**
+     * Return the entry or null if it was removed (by a concurrent build).
+     */
+    static Entry of(Path path) {
+      try {
+        return new Entry(path, Files.size(path), Files.getLastModifiedTime(path).toMillis());
+      } catch (IOException e) {
+        return null;
+      }
+    }
+  }
+}
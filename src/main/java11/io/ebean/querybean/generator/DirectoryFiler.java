@@ -0,0 +1,137 @@
+package io.ebean.querybean.generator;
+
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.FilerException;
+import javax.lang.model.element.Element;
+import javax.tools.FileObject;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Filer that writes generated sources and resources directly to the source and class
+ * output directories (used by the javac plugin where there is no annotation processing Filer).
+ * <p>
+ * Class path resources are not available and are reported as not found.
+ * </p>
+ */
+class DirectoryFiler implements Filer {
+
+  private final Path sourceOutput;
+
+  private final Path classOutput;
+
+  private final List<Path> sourceFiles = new ArrayList<>();
+
+  DirectoryFiler(Path sourceOutput, Path classOutput) {
+    this.sourceOutput = sourceOutput;
+    this.classOutput = classOutput;
+  }
+
+  /**
+   * Return the source files created.
+   */
+  List<Path> getSourceFiles() {
+    return sourceFiles;
+  }
+
+  @Override
+  public JavaFileObject createSourceFile(CharSequence name, Element... originatingElements) {
+    Path path = sourceOutput.resolve(name.toString().replace('.', '/') + JavaFileObject.Kind.SOURCE.extension);
+    sourceFiles.add(path);
+    return new PathFileObject(path, JavaFileObject.Kind.SOURCE);
+  }
+
+  @Override
+  public JavaFileObject createClassFile(CharSequence name, Element... originatingElements) throws IOException {
+    throw new FilerException("Creating class files is not supported");
+  }
+
+  @Override
+  public FileObject createResource(JavaFileManager.Location location, CharSequence pkg, CharSequence relativeName, Element... originatingElements) throws IOException {
+    return new PathFileObject(path(location, pkg, relativeName), JavaFileObject.Kind.OTHER);
+  }
+
+  @Override
+  public FileObject getResource(JavaFileManager.Location location, CharSequence pkg, CharSequence relativeName) throws IOException {
+    return new PathFileObject(path(location, pkg, relativeName), JavaFileObject.Kind.OTHER);
+  }
+
+  private Path path(JavaFileManager.Location location, CharSequence pkg, CharSequence relativeName) throws FilerException {
+    Path dir;
+    if (location == StandardLocation.SOURCE_OUTPUT) {
+      dir = sourceOutput;
+    } else if (location == StandardLocation.CLASS_OUTPUT) {
+      dir = classOutput;
+    } else {
+      throw new FilerException("Unsupported location " + location);
+    }
+    if (pkg.length() > 0) {
+      dir = dir.resolve(pkg.toString().replace('.', '/'));
+    }
+    return dir.resolve(relativeName.toString());
+  }
+
+  /**
+   * File object of a path in an output directory.
+   */
+  private static class PathFileObject extends SimpleJavaFileObject {
+
+    private final Path path;
+
+    PathFileObject(Path path, Kind kind) {
+      super(path.toUri(), kind);
+      this.path = path;
+    }
+
+    @Override
+    public InputStream openInputStream() throws IOException {
+      return Files.newInputStream(path);
+    }
+
+    @Override
+    public OutputStream openOutputStream() throws IOException {
+      Files.createDirectories(path.getParent());
+      return Files.newOutputStream(path);
+    }
+
+    @Override
+    public Writer openWriter() throws IOException {
+      return new OutputStreamWriter(openOutputStream(), StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public CharSequence getCharContent(boolean ignoreEncodingErrors) throws IOException {
+      return new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public long getLastModified() {
+      try {
+        return Files.getLastModifiedTime(path).toMillis();
+      } catch (IOException e) {
+        return 0;
+      }
+    }
+
+    @Override
+    public boolean delete() {
+      try {
+        return Files.deleteIfExists(path);
+      } catch (IOException e) {
+        return false;
+      }
+    }
+  }
+}
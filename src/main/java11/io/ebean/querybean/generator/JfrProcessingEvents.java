@@ -0,0 +1,150 @@
+package io.ebean.querybean.generator;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * ProcessingEvents recorded as JFR events.
+ * <p>
+ * Only loaded (reflectively) when jdk.jfr is available.
+ * </p>
+ */
+class JfrProcessingEvents implements ProcessingEvents {
+
+  @Override
+  public Round round() {
+    RoundEvent event = new RoundEvent();
+    event.begin();
+    return event;
+  }
+
+  @Override
+  public Entity entity() {
+    EntityEvent event = new EntityEvent();
+    event.begin();
+    return event;
+  }
+
+  @Override
+  public File file() {
+    FileEvent event = new FileEvent();
+    event.begin();
+    return event;
+  }
+
+  @Override
+  public ModuleInfo moduleInfo() {
+    ModuleInfoEvent event = new ModuleInfoEvent();
+    event.begin();
+    return event;
+  }
+
+  @Name("io.ebean.querybean.Round")
+  @Label("Query Bean Round")
+  @Description("Annotation processing round of a query bean processor")
+  @Category({"Ebean", "Query Bean Generator"})
+  static class RoundEvent extends Event implements Round {
+
+    @Label("Processor")
+    String processor;
+
+    @Label("Round")
+    int round;
+
+    @Label("Entities")
+    int entities;
+
+    @Override
+    public void commit(String processor, int round, int entities) {
+      end();
+      if (shouldCommit()) {
+        this.processor = processor;
+        this.round = round;
+        this.entities = entities;
+        commit();
+      }
+    }
+  }
+
+  @Name("io.ebean.querybean.Entity")
+  @Label("Query Bean Entity")
+  @Description("Reading the properties of an entity or embeddable bean")
+  @Category({"Ebean", "Query Bean Generator"})
+  static class EntityEvent extends Event implements Entity {
+
+    @Label("Bean")
+    String beanName;
+
+    @Label("Fields")
+    int fieldCount;
+
+    @Label("Type Resolution")
+    @Timespan(Timespan.NANOSECONDS)
+    long resolveNanos;
+
+    @Override
+    public void commit(String beanName, int fieldCount, long resolveNanos) {
+      end();
+      if (shouldCommit()) {
+        this.beanName = beanName;
+        this.fieldCount = fieldCount;
+        this.resolveNanos = resolveNanos;
+        commit();
+      }
+    }
+  }
+
+  @Name("io.ebean.querybean.File")
+  @Label("Query Bean File")
+  @Description("Rendering a generated query bean source")
+  @Category({"Ebean", "Query Bean Generator"})
+  static class FileEvent extends Event implements File {
+
+    @Label("Class")
+    String className;
+
+    @Label("Size")
+    @DataAmount
+    int bytes;
+
+    @Override
+    public void commit(String className, String content) {
+      end();
+      if (shouldCommit()) {
+        this.className = className;
+        this.bytes = content.getBytes(StandardCharsets.UTF_8).length;
+        commit();
+      }
+    }
+  }
+
+  @Name("io.ebean.querybean.ModuleInfo")
+  @Label("Query Bean Module Info")
+  @Description("Writing the ModuleInfoLoader, services file and manifest")
+  @Category({"Ebean", "Query Bean Generator"})
+  static class ModuleInfoEvent extends Event implements ModuleInfo {
+
+    @Label("Entities")
+    int entities;
+
+    @Label("Others")
+    int others;
+
+    @Override
+    public void commit(int entities, int others) {
+      end();
+      if (shouldCommit()) {
+        this.entities = entities;
+        this.others = others;
+        commit();
+      }
+    }
+  }
+}
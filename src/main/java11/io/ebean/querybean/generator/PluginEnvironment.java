@@ -0,0 +1,219 @@
+package io.ebean.querybean.generator;
+
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.util.JavacTask;
+import com.sun.source.util.TreePath;
+import com.sun.source.util.Trees;
+
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.ElementScanner8;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import java.lang.annotation.Annotation;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Processing environment of the javac plugin such that the processors run unchanged.
+ * <p>
+ * Elements and types come from the javac task, messages are reported via Trees (errors
+ * fail the compile) and generated files are written via a {@link DirectoryFiler}.
+ * Messages without an element are reported against the first compilation unit.
+ * </p>
+ */
+class PluginEnvironment implements ProcessingEnvironment, Messager {
+
+  private final JavacTask task;
+
+  private final Trees trees;
+
+  private final Map<String, String> options;
+
+  private final DirectoryFiler filer;
+
+  private final SourceVersion sourceVersion;
+
+  private CompilationUnitTree firstUnit;
+
+  PluginEnvironment(JavacTask task, Map<String, String> options, DirectoryFiler filer) {
+    this.task = task;
+    this.trees = Trees.instance(task);
+    this.options = options;
+    this.filer = filer;
+    this.sourceVersion = sourceVersion(options.get("release"));
+  }
+
+  /**
+   * Return the source version of the release option (such that the output matches the
+   * processors running in the compile, for example the Generated annotation).
+   */
+  static SourceVersion sourceVersion(String release) {
+    if (release != null) {
+      String version = release.startsWith("1.") ? release.substring(2) : release;
+      try {
+        return SourceVersion.valueOf("RELEASE_" + version.trim());
+      } catch (IllegalArgumentException e) {
+        // not a release known to this JDK
+      }
+    }
+    return SourceVersion.latest();
+  }
+
+  /**
+   * Set the compilation unit that messages without an element are reported against.
+   */
+  void setFirstUnit(CompilationUnitTree firstUnit) {
+    this.firstUnit = firstUnit;
+  }
+
+  /**
+   * Return the round of the given root elements (or the final round when processing is over).
+   */
+  RoundEnvironment round(Set<TypeElement> rootElements, boolean processingOver) {
+    return new Round(rootElements, processingOver);
+  }
+
+  @Override
+  public Map<String, String> getOptions() {
+    return options;
+  }
+
+  @Override
+  public Messager getMessager() {
+    return this;
+  }
+
+  @Override
+  public Filer getFiler() {
+    return filer;
+  }
+
+  @Override
+  public Elements getElementUtils() {
+    return task.getElements();
+  }
+
+  @Override
+  public Types getTypeUtils() {
+    return task.getTypes();
+  }
+
+  @Override
+  public SourceVersion getSourceVersion() {
+    return sourceVersion;
+  }
+
+  @Override
+  public Locale getLocale() {
+    return Locale.getDefault();
+  }
+
+  @Override
+  public void printMessage(Diagnostic.Kind kind, CharSequence msg) {
+    printMessage(kind, msg, null);
+  }
+
+  @Override
+  public void printMessage(Diagnostic.Kind kind, CharSequence msg, Element e) {
+    TreePath path = (e == null) ? null : trees.getPath(e);
+    if (path != null) {
+      trees.printMessage(kind, msg, path.getLeaf(), path.getCompilationUnit());
+    } else if (firstUnit != null) {
+      trees.printMessage(kind, msg, firstUnit, firstUnit);
+    }
+  }
+
+  @Override
+  public void printMessage(Diagnostic.Kind kind, CharSequence msg, Element e, AnnotationMirror a) {
+    printMessage(kind, msg, e);
+  }
+
+  @Override
+  public void printMessage(Diagnostic.Kind kind, CharSequence msg, Element e, AnnotationMirror a, AnnotationValue v) {
+    printMessage(kind, msg, e);
+  }
+
+  /**
+   * The single processing round of the plugin (and the final round).
+   */
+  private class Round implements RoundEnvironment {
+
+    private final Set<TypeElement> rootElements;
+
+    private final boolean processingOver;
+
+    Round(Set<TypeElement> rootElements, boolean processingOver) {
+      this.rootElements = rootElements;
+      this.processingOver = processingOver;
+    }
+
+    @Override
+    public boolean processingOver() {
+      return processingOver;
+    }
+
+    @Override
+    public boolean errorRaised() {
+      return false;
+    }
+
+    @Override
+    public Set<? extends Element> getRootElements() {
+      return processingOver ? Collections.emptySet() : rootElements;
+    }
+
+    @Override
+    public Set<? extends Element> getElementsAnnotatedWith(TypeElement annotation) {
+      Set<Element> annotated = new LinkedHashSet<>();
+      if (!processingOver && annotation != null) {
+        new ElementScanner8<Void, Void>() {
+          @Override
+          public Void scan(Element e, Void unused) {
+            for (AnnotationMirror mirror : e.getAnnotationMirrors()) {
+              if (mirror.getAnnotationType().asElement().equals(annotation)) {
+                annotated.add(e);
+              }
+            }
+            return super.scan(e, unused);
+          }
+        }.scan(rootElements, null);
+      }
+      return annotated;
+    }
+
+    @Override
+    public Set<? extends Element> getElementsAnnotatedWith(Class<? extends Annotation> annotation) {
+      return getElementsAnnotatedWith(task.getElements().getTypeElement(annotation.getCanonicalName()));
+    }
+  }
+
+  /**
+   * Return the annotation types present on the root elements (the annotations of the round).
+   */
+  static Set<TypeElement> annotations(List<TypeElement> rootElements) {
+    Set<TypeElement> annotations = new LinkedHashSet<>();
+    new ElementScanner8<Void, Void>() {
+      @Override
+      public Void scan(Element e, Void unused) {
+        for (AnnotationMirror mirror : e.getAnnotationMirrors()) {
+          annotations.add((TypeElement) mirror.getAnnotationType().asElement());
+        }
+        return super.scan(e, unused);
+      }
+    }.scan(rootElements, null);
+    return annotations;
+  }
+}
@@ -0,0 +1,197 @@
+package io.ebean.querybean.generator;
+
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.util.JavacTask;
+import com.sun.source.util.Plugin;
+import com.sun.source.util.TaskEvent;
+import com.sun.source.util.TaskListener;
+import com.sun.source.util.TreePath;
+import com.sun.source.util.Trees;
+
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * javac plugin that generates the query beans without annotation processing rounds.
+ * <p>
+ * The Processor and ModuleInfoProcessor run once when the classes are entered, via a
+ * {@link PluginEnvironment} whose Filer writes to the source and class output directories.
+ * As the generated sources are not added to the compile there is no extra round over them.
+ * They are compiled by a follow up javac task once the compile has generated the entity
+ * classes (it is skipped when the compile fails).
+ * </p>
+ * <p>
+ * The query beans are not available to code of the same compile (javac resolves imports when
+ * entering), so they suit entity modules whose query beans are used by other modules. Use the
+ * annotation processor otherwise.
+ * </p>
+ * <pre>
+ * javac -cp ... -d target/classes -proc:none --release 8 \
+ *   '-Xplugin:EbeanQueryBeans sourceOutput=target/generated-sources classOutput=target/classes classpath=... release=8' ...
+ * </pre>
+ * <p>
+ * Required arguments are <code>sourceOutput</code>, <code>classOutput</code> (the <code>-d</code> directory),
+ * <code>classpath</code> and <code>release</code>. The plugin can not read the options of the compile so
+ * the follow up compile is given the same class path and release via these. Other arguments are
+ * processor options (for example <code>ebean.querybean.compact=true</code>).
+ * </p>
+ */
+public class QueryBeanPlugin implements Plugin, TaskListener {
+
+  static final String NAME = "EbeanQueryBeans";
+
+  private final Map<URI, CompilationUnitTree> units = new LinkedHashMap<>();
+
+  private JavacTask task;
+
+  private Map<String, String> options;
+
+  private Path classOutput;
+
+  private DirectoryFiler filer;
+
+  private PluginEnvironment env;
+
+  private boolean generated;
+
+  private boolean compiled;
+
+  /**
+   * The top level classes of the compile that have not been generated (written) yet.
+   */
+  private final Set<TypeElement> pending = new HashSet<>();
+
+  @Override
+  public String getName() {
+    return NAME;
+  }
+
+  @Override
+  public void init(JavacTask task, String... args) {
+    this.task = task;
+    this.options = new HashMap<>();
+    for (String arg : args) {
+      int pos = arg.indexOf('=');
+      if (pos == -1) {
+        throw new IllegalArgumentException("Expected key=value " + NAME + " plugin argument but got " + arg);
+      }
+      options.put(arg.substring(0, pos), arg.substring(pos + 1));
+    }
+    String sourceOutput = options.get("sourceOutput");
+    String classOutput = options.get("classOutput");
+    if (sourceOutput == null || classOutput == null || options.get("classpath") == null || options.get("release") == null) {
+      throw new IllegalArgumentException(NAME + " plugin requires sourceOutput, classOutput, classpath and release arguments");
+    }
+    this.classOutput = Paths.get(classOutput);
+    this.filer = new DirectoryFiler(Paths.get(sourceOutput), this.classOutput);
+    task.addTaskListener(this);
+  }
+
+  @Override
+  public void started(TaskEvent e) {
+    if (e.getKind() == TaskEvent.Kind.ENTER && !generated && e.getCompilationUnit() != null) {
+      units.put(e.getCompilationUnit().getSourceFile().toUri(), e.getCompilationUnit());
+    }
+  }
+
+  @Override
+  public void finished(TaskEvent e) {
+    if (e.getKind() == TaskEvent.Kind.ENTER && !generated) {
+      // all the compilation units are entered, imports are checked after the ENTER events
+      generated = true;
+      generate();
+    } else if (e.getKind() == TaskEvent.Kind.GENERATE) {
+      // also fired for nested, local and anonymous classes which are not tracked
+      pending.remove(e.getTypeElement());
+    } else if (e.getKind() == TaskEvent.Kind.COMPILATION) {
+      compileGenerated();
+    }
+  }
+
+  /**
+   * Run the processors once over the entered classes (and then the final round).
+   */
+  private void generate() {
+    Trees trees = Trees.instance(task);
+    List<TypeElement> rootElements = new ArrayList<>();
+    for (CompilationUnitTree unit : units.values()) {
+      for (Tree typeDecl : unit.getTypeDecls()) {
+        Element element = trees.getElement(TreePath.getPath(unit, typeDecl));
+        if (element instanceof TypeElement) {
+          rootElements.add((TypeElement) element);
+        }
+      }
+    }
+    pending.addAll(rootElements);
+    if (rootElements.isEmpty()) {
+      return;
+    }
+    env = new PluginEnvironment(task, options, filer);
+    env.setFirstUnit(units.values().iterator().next());
+
+    Processor processor = new Processor();
+    ModuleInfoProcessor moduleInfoProcessor = new ModuleInfoProcessor();
+    processor.init(env);
+    moduleInfoProcessor.init(env);
+
+    Set<TypeElement> roots = new LinkedHashSet<>(rootElements);
+    Set<TypeElement> annotations = PluginEnvironment.annotations(rootElements);
+    processor.process(annotations, env.round(roots, false));
+    moduleInfoProcessor.process(annotations, env.round(roots, false));
+    processor.process(Collections.emptySet(), env.round(roots, true));
+    moduleInfoProcessor.process(Collections.emptySet(), env.round(roots, true));
+  }
+
+  /**
+   * Compile the generated sources with a follow up javac task when all the classes of the compile
+   * have been generated (not when the compile failed).
+   */
+  private void compileGenerated() {
+    if (compiled || filer.getSourceFiles().isEmpty() || !pending.isEmpty()) {
+      return;
+    }
+    compiled = true;
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    List<String> javacOptions = new ArrayList<>();
+    javacOptions.add("-proc:none");
+    javacOptions.add("-d");
+    javacOptions.add(classOutput.toString());
+    javacOptions.add("-cp");
+    javacOptions.add(classOutput + File.pathSeparator + options.get("classpath"));
+    javacOptions.add("--release");
+    javacOptions.add(options.get("release"));
+    try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, StandardCharsets.UTF_8)) {
+      List<File> files = new ArrayList<>();
+      for (Path sourceFile : filer.getSourceFiles()) {
+        files.add(sourceFile.toFile());
+      }
+      Iterable<? extends JavaFileObject> sources = fileManager.getJavaFileObjectsFromFiles(files);
+      if (!compiler.getTask(null, fileManager, null, javacOptions, null, sources).call()) {
+        env.printMessage(Diagnostic.Kind.ERROR, "Error compiling the generated query beans");
+      }
+    } catch (IOException e) {
+      env.printMessage(Diagnostic.Kind.ERROR, "Error compiling the generated query beans: " + e.getMessage());
+    }
+  }
+}
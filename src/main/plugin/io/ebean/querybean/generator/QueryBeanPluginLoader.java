@@ -0,0 +1,31 @@
+package io.ebean.querybean.generator;
+
+import com.sun.source.util.JavacTask;
+import com.sun.source.util.Plugin;
+
+/**
+ * The javac plugin service entry, compiled for Java 8.
+ * <p>
+ * javac loads every plugin listed in <code>META-INF/services</code> when any <code>-Xplugin</code>
+ * is given, so the listed class must load on JDK 8. The plugin itself is the {@link QueryBeanPlugin}
+ * compiled for Java 11 which is loaded when the plugin is used.
+ * </p>
+ */
+public class QueryBeanPluginLoader implements Plugin {
+
+  @Override
+  public String getName() {
+    return "EbeanQueryBeans";
+  }
+
+  @Override
+  public void init(JavacTask task, String... args) {
+    Plugin plugin;
+    try {
+      plugin = (Plugin) Class.forName("io.ebean.querybean.generator.QueryBeanPlugin").getDeclaredConstructor().newInstance();
+    } catch (ReflectiveOperationException | LinkageError e) {
+      throw new IllegalStateException("The " + getName() + " javac plugin requires JDK 11 or later", e);
+    }
+    plugin.init(task, args);
+  }
+}
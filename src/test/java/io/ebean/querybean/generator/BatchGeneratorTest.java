@@ -0,0 +1,74 @@
+package io.ebean.querybean.generator;
+
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import static org.testng.Assert.assertEquals;
+
+public class BatchGeneratorTest {
+
+  private static final String[] ENTRIES = {
+    "org/foo/Customer.class",
+    "org/foo/Customer$Builder.class",
+    "org/foo/Order.class",
+    "org/foo/My$Entity.class",
+    "org/foo/My$Entity$1.class",
+    "org/foo/package-info.class",
+    "org/foo/messages.properties",
+    "module-info.class",
+    "META-INF/versions/11/org/foo/Order.class",
+  };
+
+  @Test
+  public void classNames_directory() throws IOException {
+
+    Path dir = Files.createTempDirectory("batch-classes");
+    for (String entry : ENTRIES) {
+      Path path = dir.resolve(entry);
+      Files.createDirectories(path.getParent());
+      Files.write(path, new byte[0]);
+    }
+    assertEquals(BatchGenerator.classNames(Collections.singletonList(dir)), Arrays.asList("org.foo.Customer", "org.foo.My$Entity", "org.foo.Order"));
+  }
+
+  @Test
+  public void classNames_jar() throws IOException {
+
+    Path jar = Files.createTempFile("batch-classes", ".jar");
+    try (OutputStream out = Files.newOutputStream(jar); JarOutputStream jarOut = new JarOutputStream(out)) {
+      for (String entry : ENTRIES) {
+        jarOut.putNextEntry(new JarEntry(entry));
+        jarOut.closeEntry();
+      }
+      jarOut.putNextEntry(new JarEntry("org/bar/Product.class"));
+      jarOut.closeEntry();
+    }
+    assertEquals(BatchGenerator.classNames(Collections.singletonList(jar)), Arrays.asList("org.bar.Product", "org.foo.Customer", "org.foo.My$Entity", "org.foo.Order"));
+  }
+
+  @Test
+  public void release() throws IOException {
+
+    Path dir = Files.createTempDirectory("batch-release");
+    Files.createDirectories(dir.resolve("org/foo"));
+    Files.createDirectories(dir.resolve("META-INF/versions/17/org/foo"));
+    Files.write(dir.resolve("org/foo/Customer.class"), header(52));
+    Files.write(dir.resolve("org/foo/Order.class"), header(55));
+    Files.write(dir.resolve("org/foo/Empty.class"), new byte[0]);
+    Files.write(dir.resolve("module-info.class"), header(61));
+    Files.write(dir.resolve("META-INF/versions/17/org/foo/Order.class"), header(61));
+    assertEquals(BatchGenerator.release(Collections.singletonList(dir)), 11);
+  }
+
+  private static byte[] header(int major) {
+    return new byte[]{(byte) 0xCA, (byte) 0xFE, (byte) 0xBA, (byte) 0xBE, 0, 0, 0, (byte) major};
+  }
+}
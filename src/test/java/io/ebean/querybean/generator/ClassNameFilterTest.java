@@ -0,0 +1,56 @@
+package io.ebean.querybean.generator;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class ClassNameFilterTest {
+
+  @Test
+  public void empty() {
+
+    ClassNameFilter filter = new ClassNameFilter(null, " ");
+    assertTrue(filter.isEmpty());
+    assertTrue(filter.test("org.foo.Customer"));
+  }
+
+  @Test
+  public void include_package() {
+
+    ClassNameFilter filter = new ClassNameFilter("org.foo", null);
+    assertFalse(filter.isEmpty());
+    assertTrue(filter.test("org.foo.Customer"));
+    assertFalse(filter.test("org.foo.bar.Order"));
+    assertFalse(filter.test("org.other.Customer"));
+  }
+
+  @Test
+  public void include_glob() {
+
+    ClassNameFilter filter = new ClassNameFilter("org.*.Customer, org.foo.**", null);
+    assertTrue(filter.test("org.bar.Customer"));
+    assertTrue(filter.test("org.foo.bar.Order"));
+    assertFalse(filter.test("org.bar.baz.Customer"));
+    assertFalse(filter.test("org.bar.Order"));
+  }
+
+  @Test
+  public void exclude() {
+
+    ClassNameFilter filter = new ClassNameFilter("org.foo.**", "org.foo.internal, *.*.Audit?");
+    assertTrue(filter.test("org.foo.Customer"));
+    assertFalse(filter.test("org.foo.internal.Secret"));
+    assertFalse(filter.test("org.foo.AuditX"));
+    assertTrue(filter.test("org.foo.Audit"));
+    assertTrue(filter.test("org.foo.AuditLog"));
+  }
+
+  @Test
+  public void regex() {
+
+    ClassNameFilter filter = new ClassNameFilter(null, "regex:.*Dto");
+    assertTrue(filter.test("org.foo.Customer"));
+    assertFalse(filter.test("org.foo.CustomerDto"));
+  }
+}
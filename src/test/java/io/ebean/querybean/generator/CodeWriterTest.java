@@ -0,0 +1,30 @@
+package io.ebean.querybean.generator;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+
+public class CodeWriterTest {
+
+  @Test
+  public void append() {
+
+    CodeWriter writer = new CodeWriter(16);
+    writer.append("package ").append("org.foo").append(';').eol();
+    writer.line(1, "int a;");
+    writer.indent(2).append("b = ").append(42).append(';').eol();
+
+    assertEquals(writer.toString(), "package org.foo;\n  int a;\n    b = 42;\n");
+  }
+
+  @Test
+  public void reset() {
+
+    CodeWriter writer = new CodeWriter();
+    writer.append("foo");
+    writer.reset().append("bar");
+
+    assertEquals(writer.toString(), "bar");
+    assertEquals(writer.length(), 3);
+  }
+}
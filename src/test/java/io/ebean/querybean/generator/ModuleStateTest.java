@@ -0,0 +1,41 @@
+package io.ebean.querybean.generator;
+
+import org.testng.annotations.Test;
+
+import java.io.StringReader;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+public class ModuleStateTest {
+
+  @Test
+  public void read() throws Exception {
+
+    String content = "querybean-state 3\n" +
+      "E org.foo.Customer\n" +
+      "E org.foo.Report reporting db\n" +
+      "B org.foo.Address\n" +
+      "C org.foo.MoneyConverter\n";
+
+    ModuleMeta meta = ModuleState.read(new StringReader(content));
+
+    assertEquals(meta.getEntities().size(), 3);
+    assertEquals(meta.getEntities().get(0), "org.foo.Customer");
+    assertEquals(meta.getEntities().get(1), "reporting db:org.foo.Report");
+    assertEquals(meta.getEntities().get(2), "org.foo.Address");
+    assertEquals(meta.getOther().size(), 1);
+    assertEquals(meta.getOther().get(0), "org.foo.MoneyConverter");
+    assertEquals(meta.getKinds().get("org.foo.Address"), EntityIndex.Kind.EMBEDDABLE);
+    assertEquals(meta.getKinds().get("org.foo.MoneyConverter"), EntityIndex.Kind.CONVERTER);
+  }
+
+  @Test
+  public void read_unsupportedVersion() throws Exception {
+
+    assertNull(ModuleState.read(new StringReader("querybean-state 1\nE org.foo.Customer - 3f2a9c0e5b1d7a64\n")));
+    assertNull(ModuleState.read(new StringReader("querybean-state 2\nE org.foo.Customer -\n")));
+    assertNull(ModuleState.read(new StringReader("querybean-state 99\nE org.foo.Customer -\n")));
+    assertNull(ModuleState.read(new StringReader("")));
+  }
+}
@@ -0,0 +1,70 @@
+package io.ebean.querybean.generator;
+
+import org.testng.annotations.Test;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertTrue;
+
+public class QueryBeanFingerprintsTest {
+
+  private static QueryBeanModel model(String dbName, boolean compact, String... properties) {
+    List<PropertyMeta> props = new ArrayList<>();
+    for (String property : properties) {
+      props.add(new PropertyMeta(property, new PropertyType("PString")));
+    }
+    return new QueryBeanModel("org.foo.Customer", dbName, true, false, true, compact, !compact, props, new TreeSet<>());
+  }
+
+  @Test
+  public void fingerprint() {
+
+    List<String> supers = Collections.singletonList("org.foo.BaseDomain");
+    String fingerprint = QueryBeanFingerprints.fingerprint(model(null, false, "id", "name"), supers);
+
+    assertEquals(QueryBeanFingerprints.fingerprint(model(null, false, "id", "name"), supers), fingerprint);
+    assertNotEquals(QueryBeanFingerprints.fingerprint(model(null, false, "id", "name", "email"), supers), fingerprint);
+    assertNotEquals(QueryBeanFingerprints.fingerprint(model("other", false, "id", "name"), supers), fingerprint);
+    assertNotEquals(QueryBeanFingerprints.fingerprint(model(null, true, "id", "name"), supers), fingerprint);
+    assertNotEquals(QueryBeanFingerprints.fingerprint(model(null, false, "id", "name"), Collections.emptyList()), fingerprint);
+  }
+
+  @Test
+  public void generatorHash() {
+
+    // hash of the class files directory, stable within and across JVMs
+    String hash = QueryBeanFingerprints.generatorHash();
+    assertEquals(hash.length(), 16);
+    assertEquals(QueryBeanFingerprints.generatorHash(), hash);
+  }
+
+  @Test
+  public void put_render_read() throws Exception {
+
+    Map<String, String> previous = QueryBeanFingerprints.read(new StringReader("querybean-fingerprints 1\norg.foo.Customer abc\norg.foo.Order def\n"));
+    QueryBeanFingerprints fingerprints = new QueryBeanFingerprints(previous);
+    assertFalse(fingerprints.isModified());
+
+    assertTrue(fingerprints.put("org.foo.Customer", "abc"));
+    assertFalse(fingerprints.put("org.foo.Order", "xyz"));
+    assertFalse(fingerprints.put("org.foo.Address", "123"));
+    assertTrue(fingerprints.isModified());
+
+    assertEquals(fingerprints.render(), "querybean-fingerprints 1\norg.foo.Address 123\norg.foo.Customer abc\norg.foo.Order xyz\n");
+  }
+
+  @Test
+  public void read_unsupportedVersion() throws Exception {
+
+    assertTrue(QueryBeanFingerprints.read(new StringReader("querybean-fingerprints 99\norg.foo.Customer abc\n")).isEmpty());
+    assertTrue(QueryBeanFingerprints.read(new StringReader("")).isEmpty());
+  }
+}
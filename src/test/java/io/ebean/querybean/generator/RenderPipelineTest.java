@@ -0,0 +1,98 @@
+package io.ebean.querybean.generator;
+
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.testng.Assert.assertEquals;
+
+public class RenderPipelineTest {
+
+  private final List<QueryBeanModel> beans = Arrays.asList(
+    entity("org.foo.Customer", "org.foo.Address", "org.bar.Order"),
+    embeddable("org.foo.Address", "org.foo.Country"),
+    entity("org.foo.Country"),
+    entity("org.bar.Order", "org.foo.Customer", "org.bar.OrderLine"),
+    entity("org.bar.OrderLine", "org.bar.Product"),
+    entity("org.bar.Product"),
+    entity("org.other.Report"));
+
+  private static QueryBeanModel entity(String name, String... targets) {
+    return model(name, true, targets);
+  }
+
+  private static QueryBeanModel embeddable(String name, String... targets) {
+    return model(name, false, targets);
+  }
+
+  private static QueryBeanModel model(String name, boolean entity, String... targets) {
+    List<PropertyMeta> properties = new ArrayList<>();
+    properties.add(new PropertyMeta("id", new PropertyType("PLong")));
+    for (String target : targets) {
+      String[] split = Split.split(target);
+      properties.add(new PropertyMeta(split[1].toLowerCase(), new PropertyTypeAssoc("QAssoc" + split[1], split[0] + ".query.assoc", target)));
+    }
+    return new QueryBeanModel(name, null, entity, !entity, false, false, false, properties, new HashSet<>());
+  }
+
+  private static Set<String> set(String... names) {
+    return new TreeSet<>(Arrays.asList(names));
+  }
+
+  @Test
+  public void reachable_include() {
+
+    Set<String> reachable = RenderPipeline.reachable(beans, new ClassNameFilter("org.bar", null));
+    assertEquals(new TreeSet<>(reachable), set("org.bar.Order", "org.bar.OrderLine", "org.bar.Product",
+      "org.foo.Customer", "org.foo.Address", "org.foo.Country"));
+  }
+
+  @Test
+  public void reachable_include_leaf() {
+
+    Set<String> reachable = RenderPipeline.reachable(beans, new ClassNameFilter("org.bar.OrderLine", null));
+    assertEquals(new TreeSet<>(reachable), set("org.bar.OrderLine", "org.bar.Product"));
+  }
+
+  @Test
+  public void reachable_exclude() {
+
+    Set<String> reachable = RenderPipeline.reachable(beans, new ClassNameFilter(null, "org.foo"));
+    assertEquals(new TreeSet<>(reachable), set("org.bar.Order", "org.bar.OrderLine", "org.bar.Product",
+      "org.foo.Customer", "org.foo.Address", "org.foo.Country", "org.other.Report"));
+
+    reachable = RenderPipeline.reachable(beans, new ClassNameFilter(null, "org.bar,org.foo"));
+    assertEquals(new TreeSet<>(reachable), set("org.other.Report"));
+  }
+
+  @Test
+  public void assocTargets_all() {
+
+    Set<String> targets = RenderPipeline.assocTargets(beans, null, name -> false);
+    assertEquals(new TreeSet<>(targets), set("org.bar.Order", "org.bar.OrderLine", "org.bar.Product",
+      "org.foo.Customer", "org.foo.Address", "org.foo.Country"));
+  }
+
+  @Test
+  public void assocTargets_reachable() {
+
+    Set<String> reachable = set("org.bar.OrderLine", "org.bar.Product", "org.foo.Address", "org.foo.Country");
+    Set<String> targets = RenderPipeline.assocTargets(beans, reachable, name -> false);
+    // the embeddable Address is not an entity so its targets are only included when Address is a target
+    assertEquals(new TreeSet<>(targets), set("org.bar.Product"));
+  }
+
+  @Test
+  public void assocTargets_keepAssoc() {
+
+    Set<String> reachable = set("org.bar.OrderLine", "org.bar.Product", "org.foo.Address", "org.foo.Country");
+    ClassNameFilter keep = new ClassNameFilter("org.foo.Address", null);
+    Set<String> targets = RenderPipeline.assocTargets(beans, reachable, keep::test);
+    assertEquals(new TreeSet<>(targets), set("org.bar.Product", "org.foo.Address", "org.foo.Country"));
+  }
+}
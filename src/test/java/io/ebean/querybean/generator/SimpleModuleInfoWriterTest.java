@@ -0,0 +1,95 @@
+package io.ebean.querybean.generator;
+
+import org.testng.annotations.Test;
+
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class SimpleModuleInfoWriterTest {
+
+  private static final List<JavaFileObject> SOURCES = Arrays.asList(
+    source("javax.persistence.Entity", "package javax.persistence; public @interface Entity {}"),
+    source("javax.persistence.Embeddable", "package javax.persistence; public @interface Embeddable {}"),
+    source("javax.persistence.Converter", "package javax.persistence; public @interface Converter {}"),
+    source("io.ebean.annotation.DbName", "package io.ebean.annotation; public @interface DbName { String value(); }"),
+    source("org.foo.A", "package org.foo; @javax.persistence.Entity public class A {}"),
+    source("org.foo.B", "package org.foo; @javax.persistence.Entity public class B {}"),
+    source("org.foo.C", "package org.foo; @javax.persistence.Entity public class C {}"),
+    source("org.foo.R", "package org.foo; @javax.persistence.Entity @io.ebean.annotation.DbName(\"my-db\") public class R {}"),
+    source("org.foo.MyConverter", "package org.foo; @javax.persistence.Converter public class MyConverter {}"));
+
+  private static JavaFileObject source(String className, String content) {
+    URI uri = URI.create("string:///" + className.replace('.', '/') + JavaFileObject.Kind.SOURCE.extension);
+    return new SimpleJavaFileObject(uri, JavaFileObject.Kind.SOURCE) {
+      @Override
+      public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+        return content;
+      }
+    };
+  }
+
+  /**
+   * Run the ModuleInfoProcessor over the sources returning the generated ModuleInfoLoader.
+   */
+  private static String moduleInfo(String... options) throws IOException {
+    Path dir = Files.createTempDirectory("moduleinfo");
+    Path gen = Files.createDirectories(dir.resolve("gen"));
+    Path classes = Files.createDirectories(dir.resolve("classes"));
+    List<String> args = new ArrayList<>(Arrays.asList("-proc:only", "-s", gen.toString(), "-d", classes.toString()));
+    Collections.addAll(args, options);
+
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    JavaCompiler.CompilationTask task = compiler.getTask(new StringWriter(), null, new DiagnosticCollector<>(), args, null, SOURCES);
+    task.setProcessors(Collections.singletonList(new ModuleInfoProcessor()));
+    assertTrue(task.call());
+    return new String(Files.readAllBytes(gen.resolve("org/foo/_ebean$ModuleInfo.java")), StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void write_unsharded() throws IOException {
+
+    String content = moduleInfo();
+    assertTrue(content.contains("@ModuleInfo(other={\"org.foo.MyConverter\"}, entities={\"my-db:org.foo.R\",\"org.foo.A\",\"org.foo.B\",\"org.foo.C\"})"));
+    assertFalse(content.contains("Shard0"));
+    assertTrue(content.contains("      case \"my-db\":\n        return Classes1.entities;"));
+  }
+
+  @Test
+  public void write_sharded() throws IOException {
+
+    String content = moduleInfo("-A" + Constants.OPTION_SHARD_SIZE + "=2");
+    assertTrue(content.contains("@ModuleInfo(other={\"org.foo.MyConverter\"}, entities={})"));
+    assertTrue(content.contains("@ModuleInfo(entities={\"org.foo.A\",\"org.foo.B\"})\n  private static final class Shard0 {"));
+    assertTrue(content.contains("@ModuleInfo(entities={\"org.foo.C\"})\n  private static final class Shard1 {"));
+    assertTrue(content.contains("@ModuleInfo(entities={\"my-db:org.foo.R\"})\n  private static final class Shard2 {"));
+    assertFalse(content.contains("Shard3"));
+    assertTrue(content.contains("  private static final class Others {\n    static final Class<?>[] classes = {\n      org.foo.MyConverter.class,\n    };"));
+    assertTrue(content.contains("static final List<Class<?>> entities = list(Shard0.classes, Shard1.classes, Others.classes);"));
+    assertTrue(content.contains("static final List<Class<?>> entities = list(Shard2.classes, Others.classes);"));
+    assertTrue(content.contains("      case \"my-db\":\n        return Classes1.entities;"));
+  }
+
+  @Test
+  public void write_sharded_names() throws IOException {
+
+    String content = moduleInfo("-A" + Constants.OPTION_SHARD_SIZE + "=2", "-A" + Constants.OPTION_NAMES + "=true");
+    assertTrue(content.contains("Names.entities1"));
+    assertFalse(content.contains("my-db\"."));
+  }
+}
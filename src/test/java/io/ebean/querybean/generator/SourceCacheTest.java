@@ -0,0 +1,42 @@
+package io.ebean.querybean.generator;
+
+import org.testng.annotations.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertNull;
+
+public class SourceCacheTest {
+
+  @Test
+  public void put_get_evict() throws Exception {
+
+    Path dir = Files.createTempDirectory("querybean-cache");
+    SourceCache cache = new SourceCache(dir, 10);
+
+    String rootKey = SourceCache.key("abc", false);
+    String assocKey = SourceCache.key("abc", true);
+    assertNotEquals(rootKey, assocKey);
+    assertNull(cache.get(rootKey));
+
+    cache.put(rootKey, "class QFoo {}");
+    assertEquals(cache.get(rootKey), "class QFoo {}");
+
+    // over the maximum size so evicted
+    cache.evict();
+    assertNull(cache.get(rootKey));
+    assertEquals(cache.summary(), "source cache " + dir + " hits 1, misses 2, evicted 1");
+  }
+
+  @Test
+  public void evict_missingDirectory() throws Exception {
+
+    Path dir = Files.createTempDirectory("querybean-cache").resolve("missing");
+    SourceCache cache = new SourceCache(dir, 0);
+    cache.evict();
+    assertEquals(cache.summary(), "source cache " + dir + " hits 0, misses 0, evicted 0");
+  }
+}